@@ -0,0 +1,58 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.adapters.CartDtoToCartAdapterImpl;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.adapters.CartItemDtoToCartItemAdapterImpl;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.adapters.CartToCartDtoAdapterImpl;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.Cart;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.CartItem;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request conversion cost between DTOs and entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartAdapterBenchmark {
+
+    @Param({"5", "50", "1000"})
+    private int itemCount;
+
+    private CartItemDtoToCartItemAdapterImpl cartItemDtoToCartItemAdapter;
+    private CartDtoToCartAdapterImpl cartDtoToCartAdapter;
+    private CartToCartDtoAdapterImpl cartToCartDtoAdapter;
+
+    private CartDto cartDto;
+    private Cart cart;
+
+    @Setup
+    public void setUp() {
+        cartItemDtoToCartItemAdapter = new CartItemDtoToCartItemAdapterImpl();
+        cartDtoToCartAdapter = new CartDtoToCartAdapterImpl(cartItemDtoToCartItemAdapter);
+        cartToCartDtoAdapter = new CartToCartDtoAdapterImpl();
+        cartDto = CartFixtures.cartDto(itemCount);
+        cart = CartFixtures.cart(itemCount);
+    }
+
+    @Benchmark
+    public Cart cartDtoToCart() {
+        return cartDtoToCartAdapter.convertToCartFromCartDto(cartDto);
+    }
+
+    @Benchmark
+    public CartDto cartToCartDto() {
+        return cartToCartDtoAdapter.convertToCartDto(cart);
+    }
+
+    @Benchmark
+    public List<CartItem> cartItemDtosToCartItems() {
+        return cartItemDtoToCartItemAdapter.convertToCartItemListFromCartItemsDto(cartDto.getCartItems(), cart);
+    }
+}
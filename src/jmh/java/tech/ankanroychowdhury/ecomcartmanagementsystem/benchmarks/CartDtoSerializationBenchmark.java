@@ -0,0 +1,61 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.RedisConfig;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.serializers.CartDtoRedisSerializer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plain Jackson JSON encoding of CartDto against the Smile/gzip serializer used for the Redis cart cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartDtoSerializationBenchmark {
+
+    @Param({"5", "50", "1000"})
+    private int itemCount;
+
+    private ObjectMapper objectMapper;
+    private CartDto cartDto;
+    private byte[] serializedCart;
+    private CartDtoRedisSerializer redisSerializer;
+    private byte[] redisSerializedCart;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = new RedisConfig().objectMapper();
+        cartDto = CartFixtures.cartDto(itemCount);
+        serializedCart = objectMapper.writeValueAsBytes(cartDto);
+        redisSerializer = new CartDtoRedisSerializer(objectMapper, 1024);
+        redisSerializedCart = redisSerializer.serialize(cartDto);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cartDto);
+    }
+
+    @Benchmark
+    public CartDto deserialize() throws IOException {
+        return objectMapper.readValue(serializedCart, CartDto.class);
+    }
+
+    @Benchmark
+    public byte[] serializeForRedis() {
+        return redisSerializer.serialize(cartDto);
+    }
+
+    @Benchmark
+    public CartDto deserializeFromRedis() {
+        return redisSerializer.deserialize(redisSerializedCart);
+    }
+}
@@ -0,0 +1,59 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.benchmarks;
+
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.Cart;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.CartItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic carts shared by the benchmarks.
+ */
+public final class CartFixtures {
+
+    private CartFixtures() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static CartDto cartDto(int itemCount) {
+        List<CartItemDto> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(CartItemDto.builder()
+                    .itemId((long) i)
+                    .productId(productId(i))
+                    .quantity(1 + i % 5)
+                    .price(9.99 + i)
+                    .build());
+        }
+        return CartDto.builder()
+                .cartId("4b0d7e8e-2f51-4c39-9a7f-6f7c7d3c1a10")
+                .userId("user-42")
+                .cartItems(items)
+                .build();
+    }
+
+    public static Cart cart(int itemCount) {
+        Cart cart = Cart.builder()
+                .cartId("4b0d7e8e-2f51-4c39-9a7f-6f7c7d3c1a10")
+                .userId("user-42")
+                .active(true)
+                .cartItems(new ArrayList<>(itemCount))
+                .build();
+        for (int i = 0; i < itemCount; i++) {
+            cart.getCartItems().add(CartItem.builder()
+                    .id((long) i)
+                    .productId(productId(i))
+                    .quantity(1 + i % 5)
+                    .price(9.99 + i)
+                    .cart(cart)
+                    .build());
+        }
+        return cart;
+    }
+
+    public static String productId(int index) {
+        return "product-" + index;
+    }
+}
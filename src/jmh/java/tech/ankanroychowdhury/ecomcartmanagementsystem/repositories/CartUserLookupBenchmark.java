@@ -0,0 +1,154 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of resolving a user's active cart (the query behind {@code CartRepository#findActiveCartIdByUserId}) with and
+ * without idx_cart_user_id_active. Every user owns four carts, one of them active.
+ * <p>
+ * Defaults to in-memory H2 in MySQL mode. For the 10M cart figure run it against a MySQL schema instead, e.g.
+ * {@code -p carts=10000000 -p jdbcUrl=jdbc:mysql://localhost:3306/cartdb_dev -p user=root -p password=...}; the table is
+ * only filled when empty, so the data set is loaded once and reused by later runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartUserLookupBenchmark {
+
+    private static final String INDEX = "idx_cart_user_id_active";
+    private static final int CARTS_PER_USER = 4;
+    private static final int BATCH_SIZE = 5_000;
+
+    private static final String ACTIVE_CART_ID_BY_USER = """
+            SELECT cart_id FROM cart
+            WHERE user_id = ? AND active = TRUE
+            ORDER BY updated_at DESC
+            LIMIT 1
+            """;
+
+    @Param({"1000000"})
+    private int carts;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    @Param({"jdbc:h2:mem:cartdb;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS cartdb_dev\\;SET SCHEMA cartdb_dev"})
+    private String jdbcUrl;
+
+    @Param({"sa"})
+    private String user;
+
+    @Param({""})
+    private String password;
+
+    private Connection connection;
+    private PreparedStatement lookup;
+    private int users;
+    private int nextUser;
+
+    @Setup
+    public void setUp() throws SQLException {
+        Flyway.configure().dataSource(jdbcUrl, user, password).load().migrate();
+        connection = DriverManager.getConnection(jdbcUrl, user, password);
+        users = carts / CARTS_PER_USER;
+        if (count() == 0) {
+            populate();
+        }
+        toggleIndex();
+        lookup = connection.prepareStatement(ACTIVE_CART_ID_BY_USER);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        // Leave a shared MySQL schema the way the migrations define it
+        if (!indexed) {
+            indexed = true;
+            toggleIndex();
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public String findActiveCartIdByUserId() throws SQLException {
+        // Strides through the users so consecutive lookups hit different parts of the index
+        nextUser = (nextUser + 7919) % users;
+        lookup.setString(1, userId(nextUser));
+        try (ResultSet resultSet = lookup.executeQuery()) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+
+    private long count() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM cart")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private void populate() throws SQLException {
+        connection.setAutoCommit(false);
+        long now = System.currentTimeMillis();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO cart (cart_id, user_id, active, created_at, updated_at) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < carts; i++) {
+                // The last cart a user gets is the active one and the most recently updated
+                Timestamp updatedAt = new Timestamp(now - (long) (carts - i) * 1000);
+                insert.setString(1, new UUID(0, i).toString());
+                insert.setString(2, userId(i % users));
+                insert.setBoolean(3, i / users == CARTS_PER_USER - 1);
+                insert.setTimestamp(4, updatedAt);
+                insert.setTimestamp(5, updatedAt);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void toggleIndex() throws SQLException {
+        boolean present = indexExists();
+        try (Statement statement = connection.createStatement()) {
+            if (indexed && !present) {
+                statement.execute("CREATE INDEX " + INDEX + " ON cart (user_id, active, updated_at)");
+            } else if (!indexed && present) {
+                statement.execute("DROP INDEX " + INDEX + " ON cart");
+            }
+        }
+    }
+
+    private boolean indexExists() throws SQLException {
+        try (ResultSet indexes = connection.getMetaData().getIndexInfo(null, null, "cart", false, false)) {
+            while (indexes.next()) {
+                if (INDEX.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static String userId(int user) {
+        return "user-" + user;
+    }
+}
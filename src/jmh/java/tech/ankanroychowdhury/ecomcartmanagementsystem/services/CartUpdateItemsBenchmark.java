@@ -0,0 +1,61 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+import org.openjdk.jmh.annotations.*;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.benchmarks.CartFixtures;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.Cart;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.CartItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of merging an update into an existing cart's items, for a single changed item and for a batch of changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartUpdateItemsBenchmark {
+
+    @Param({"5", "50", "1000"})
+    private int itemCount;
+
+    @Param({"1", "5"})
+    private int changedItems;
+
+    private List<CartItem> existingItems;
+    // Two alternating updates so every invocation changes something instead of hitting the "already up to date" path
+    private List<CartItem> updateA;
+    private List<CartItem> updateB;
+    private long invocation;
+
+    @Setup
+    public void setUp() {
+        Cart cart = CartFixtures.cart(itemCount);
+        existingItems = cart.getCartItems();
+        updateA = updates(cart, 1);
+        updateB = updates(cart, 2);
+    }
+
+    @Benchmark
+    public boolean updateCartItems() {
+        List<CartItem> update = (invocation++ & 1) == 0 ? updateA : updateB;
+        return CartServiceImpl.updateCartItems(existingItems, update);
+    }
+
+    private List<CartItem> updates(Cart cart, int quantity) {
+        List<CartItem> updates = new ArrayList<>(changedItems);
+        for (int i = 0; i < changedItems; i++) {
+            updates.add(CartItem.builder()
+                    .productId(CartFixtures.productId(i * Math.max(1, itemCount / changedItems) % itemCount))
+                    .quantity(quantity)
+                    .price(19.99)
+                    .cart(cart)
+                    .build());
+        }
+        return updates;
+    }
+}
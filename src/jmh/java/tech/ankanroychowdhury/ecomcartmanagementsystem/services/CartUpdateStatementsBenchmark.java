@@ -0,0 +1,144 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisReactiveAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.benchmarks.CartFixtures;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.IdGeneratorConfig;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.Cart;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.CartItem;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.CartItemIdListener;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.metrics.StatementCountingInspector;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartRepository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.CartTotals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL statements behind one whole-cart update: load the cart with its items, apply the change through
+ * {@link CartServiceImpl#updateCartItems} and commit. Runs JPA on in-memory H2 with the Flyway schema, without the web
+ * layer or Redis. The {@code statements} counter is what {@link StatementCountingInspector} sees, the load included;
+ * batched statements count once, as in the {@code cart.jpa.statements} metric.
+ * <p>
+ * {@code change} alternates the quantity of the chosen items, {@code removeAndAdd} alternates removing them (quantity 0)
+ * and adding them back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartUpdateStatementsBenchmark {
+
+    @Param({"200"})
+    private int itemCount;
+
+    @Param({"1", "5"})
+    private int changedItems;
+
+    @Param({"change", "removeAndAdd"})
+    private String scenario;
+
+    private ConfigurableApplicationContext context;
+    private CartRepository cartRepository;
+    private TransactionTemplate transactionTemplate;
+    private String cartId;
+    private long invocation;
+
+    // JMH sums event counters over the measured iterations; statements / updates is the per-update figure
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SqlCounters {
+        public long statements;
+        public long updates;
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            statements = 0;
+            updates = 0;
+        }
+    }
+
+    @Configuration
+    @EnableAutoConfiguration(exclude = {RedisAutoConfiguration.class, RedisReactiveAutoConfiguration.class,
+            RedisRepositoriesAutoConfiguration.class})
+    @EnableJpaAuditing
+    @EntityScan(basePackageClasses = Cart.class)
+    @EnableJpaRepositories(basePackageClasses = CartRepository.class)
+    @Import({IdGeneratorConfig.class, CartItemIdListener.class})
+    static class JpaOnlyConfig {
+    }
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(JpaOnlyConfig.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:cartdb;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;"
+                                + "INIT=CREATE SCHEMA IF NOT EXISTS cartdb_dev\\;SET SCHEMA cartdb_dev",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=none",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                                + StatementCountingInspector.class.getName(),
+                        "--logging.level.root=warn");
+        cartRepository = context.getBean(CartRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        Cart cart = CartFixtures.cart(itemCount);
+        cart.setCartId(null);
+        cart.setActive(true);
+        cart.getCartItems().forEach(item -> item.setId(null));
+        cartId = cartRepository.save(cart).getCartId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Boolean updateCart(SqlCounters counters) {
+        long round = invocation++;
+        StatementCountingInspector.reset();
+        Boolean updated = transactionTemplate.execute(status -> {
+            Cart cart = cartRepository.findCartByCartIdAndActiveIsTrue(cartId);
+            boolean changed = CartServiceImpl.updateCartItems(cart.getCartItems(), updates(cart, round));
+            CartTotals.recalculate(cart);
+            cartRepository.save(cart);
+            return changed;
+        });
+        counters.statements += StatementCountingInspector.current();
+        counters.updates++;
+        return updated;
+    }
+
+    private List<CartItem> updates(Cart cart, long round) {
+        boolean odd = (round & 1) == 1;
+        int quantity = "removeAndAdd".equals(scenario) ? (odd ? 1 : 0) : (odd ? 2 : 1);
+        List<CartItem> updates = new ArrayList<>(changedItems);
+        for (int i = 0; i < changedItems; i++) {
+            updates.add(CartItem.builder()
+                    .productId(CartFixtures.productId(i * (itemCount / changedItems)))
+                    .quantity(quantity)
+                    .price(19.99)
+                    .cart(cart)
+                    .build());
+        }
+        return updates;
+    }
+}
@@ -0,0 +1,184 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop traffic generator: every client repeatedly picks a weighted operation, waits for the response and goes again.
+ * The mix is read heavy, like the production browse-then-buy pattern.
+ */
+class CartTrafficDriver {
+
+    // Cumulative weights out of 100
+    private static final int CREATE_USER_WEIGHT = 10;
+    private static final int GET_WEIGHT = 55;
+    private static final int ADD_ITEMS_WEIGHT = 70;
+    private static final int UPDATE_WEIGHT = 80;
+    private static final int GUEST_WEIGHT = 95;
+
+    private static final int MAX_TRACKED_CARTS = 200;
+
+    private final URI baseUri;
+    private final LoadTestSettings settings;
+    private final int concurrency;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    CartTrafficDriver(URI baseUri, LoadTestSettings settings, int concurrency, HttpClient httpClient) {
+        this.baseUri = baseUri;
+        this.settings = settings;
+        this.concurrency = concurrency;
+        this.httpClient = httpClient;
+    }
+
+    LoadReport run(ExecutorService clients, String serverMode) throws Exception {
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long stopAt = measureFrom + settings.duration().toNanos();
+
+        List<Future<Map<Endpoint, LatencyStats>>> results = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            results.add(clients.submit(() -> new Client().run(measureFrom, stopAt)));
+        }
+
+        Map<Endpoint, LatencyStats> merged = new EnumMap<>(Endpoint.class);
+        for (Future<Map<Endpoint, LatencyStats>> result : results) {
+            result.get().forEach((endpoint, stats) -> merged.computeIfAbsent(endpoint, e -> new LatencyStats()).merge(stats));
+        }
+        return new LoadReport(merged, settings.duration(), concurrency, serverMode);
+    }
+
+    private final class Client {
+
+        private final Map<Endpoint, LatencyStats> stats = new EnumMap<>(Endpoint.class);
+        private final List<String> userCartIds = new ArrayList<>();
+        private final String userId = "loadtest-" + UUID.randomUUID();
+
+        Map<Endpoint, LatencyStats> run(long measureFrom, long stopAt) {
+            while (System.nanoTime() < stopAt) {
+                int roll = ThreadLocalRandom.current().nextInt(100);
+                try {
+                    if (userCartIds.isEmpty() || roll < CREATE_USER_WEIGHT) {
+                        createUserCart(measureFrom);
+                    } else if (roll < GET_WEIGHT) {
+                        send(Endpoint.GET_CART, get("/api/v1/carts?cartId=" + anyCartId()), measureFrom);
+                    } else if (roll < ADD_ITEMS_WEIGHT) {
+                        send(Endpoint.ADD_ITEMS, json("PATCH", "/api/v1/carts/items?cartId=" + anyCartId(), items(1)), measureFrom);
+                    } else if (roll < UPDATE_WEIGHT) {
+                        send(Endpoint.UPDATE_CART, json("PUT", "/api/v1/carts?cartId=" + anyCartId(),
+                                Map.of("cartItems", items(2))), measureFrom);
+                    } else if (roll < GUEST_WEIGHT) {
+                        String guestCartId = createGuestCart(measureFrom);
+                        if (guestCartId != null) {
+                            getGuestCart(guestCartId, measureFrom);
+                        }
+                    } else {
+                        String guestCartId = createGuestCart(measureFrom);
+                        if (guestCartId != null) {
+                            send(Endpoint.MERGE_CART, json("POST", "/api/v1/carts/merge/" + userId + "?cartId=" + guestCartId, null), measureFrom);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (IOException e) {
+                    // Only request encoding or response parsing gets here, which is a driver bug rather than load
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return stats;
+        }
+
+        private void createUserCart(long measureFrom) throws IOException, InterruptedException {
+            JsonNode body = send(Endpoint.CREATE_USER_CART, json("POST", "/api/v1/carts",
+                    Map.of("userId", userId, "cartItems", items(settings.itemsPerCart()))), measureFrom);
+            if (body != null && userCartIds.size() < MAX_TRACKED_CARTS) {
+                userCartIds.add(body.path("data").path("cartId").asText());
+            }
+        }
+
+        private String createGuestCart(long measureFrom) throws IOException, InterruptedException {
+            Map<String, Object> cart = Map.of("cartItems", items(settings.itemsPerCart()));
+            JsonNode body = settings.reactiveGuest()
+                    ? send(Endpoint.CREATE_GUEST_CART_V2, json("POST", "/api/v2/carts/guest", cart), measureFrom)
+                    : send(Endpoint.CREATE_GUEST_CART, json("POST", "/api/v1/carts", cart), measureFrom);
+            return body == null ? null : body.path("data").path("cartId").asText();
+        }
+
+        private void getGuestCart(String guestCartId, long measureFrom) throws IOException, InterruptedException {
+            if (settings.reactiveGuest()) {
+                send(Endpoint.GET_GUEST_CART_V2, get("/api/v2/carts/guest?cartId=" + guestCartId), measureFrom);
+            } else {
+                send(Endpoint.GET_GUEST_CART, get("/api/v1/carts/guest?cartId=" + guestCartId), measureFrom);
+            }
+        }
+
+        private String anyCartId() {
+            return userCartIds.get(ThreadLocalRandom.current().nextInt(userCartIds.size()));
+        }
+
+        private JsonNode send(Endpoint endpoint, HttpRequest request, long measureFrom) throws IOException, InterruptedException {
+            long begin = System.nanoTime();
+            HttpResponse<byte[]> response;
+            try {
+                response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            } catch (IOException e) {
+                // Timeouts and refused connections count against the endpoint that caused them
+                record(endpoint, begin, measureFrom, false);
+                return null;
+            }
+            boolean success = response.statusCode() / 100 == 2;
+            record(endpoint, begin, measureFrom, success);
+            return success ? objectMapper.readTree(response.body()) : null;
+        }
+
+        private void record(Endpoint endpoint, long begin, long measureFrom, boolean success) {
+            if (begin >= measureFrom) {
+                stats.computeIfAbsent(endpoint, e -> new LatencyStats()).record(System.nanoTime() - begin, success);
+            }
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(Duration.ofSeconds(30)).GET().build();
+        }
+
+        private HttpRequest json(String method, String path, Object body) throws IOException {
+            HttpRequest.BodyPublisher publisher = body == null
+                    ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+            return HttpRequest.newBuilder(baseUri.resolve(path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .method(method, publisher)
+                    .build();
+        }
+
+        private List<Map<String, Object>> items(int count) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<Map<String, Object>> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(Map.of(
+                        "productId", "sku-" + random.nextInt(500),
+                        "quantity", 1 + random.nextInt(5),
+                        "price", 1 + random.nextInt(10_000) / 100.0));
+            }
+            return items;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.loadtest;
+
+enum Endpoint {
+    CREATE_USER_CART("POST /api/v1/carts (user)"),
+    CREATE_GUEST_CART("POST /api/v1/carts (guest)"),
+    GET_CART("GET /api/v1/carts"),
+    GET_GUEST_CART("GET /api/v1/carts/guest"),
+    CREATE_GUEST_CART_V2("POST /api/v2/carts/guest"),
+    GET_GUEST_CART_V2("GET /api/v2/carts/guest"),
+    ADD_ITEMS("PATCH /api/v1/carts/items"),
+    UPDATE_CART("PUT /api/v1/carts"),
+    MERGE_CART("POST /api/v1/carts/merge/{userId}");
+
+    final String label;
+
+    Endpoint(String label) {
+        this.label = label;
+    }
+}
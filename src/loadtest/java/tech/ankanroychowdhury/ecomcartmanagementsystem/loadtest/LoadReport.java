@@ -0,0 +1,27 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.loadtest;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Map;
+
+record LoadReport(Map<Endpoint, LatencyStats> statsByEndpoint, Duration measured, int concurrency, String serverMode) {
+
+    void print(PrintStream out) {
+        double seconds = measured.toMillis() / 1000.0;
+        out.printf("%nLoad test: %d concurrent clients, %.1fs measured, server on %s%n", concurrency, seconds, serverMode);
+        out.printf("%-36s %10s %8s %10s %10s %10s %10s%n", "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p99 ms", "max ms");
+        LatencyStats total = new LatencyStats();
+        for (Map.Entry<Endpoint, LatencyStats> entry : statsByEndpoint.entrySet()) {
+            LatencyStats stats = entry.getValue();
+            total.merge(stats);
+            printRow(out, entry.getKey().label, stats, seconds);
+        }
+        printRow(out, "TOTAL", total, seconds);
+    }
+
+    private static void printRow(PrintStream out, String label, LatencyStats stats, double seconds) {
+        out.printf("%-36s %10d %8d %10.1f %10.2f %10.2f %10.2f%n",
+                label, stats.count(), stats.errors(), stats.count() / seconds,
+                stats.percentileMillis(50), stats.percentileMillis(99), stats.percentileMillis(100));
+    }
+}
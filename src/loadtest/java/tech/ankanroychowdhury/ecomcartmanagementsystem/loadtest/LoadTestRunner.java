@@ -0,0 +1,61 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import redis.embedded.RedisServer;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.EcomCartManagementSystemApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Boots the application against an embedded Redis server and an in-memory H2 database (MySQL mode, migrated by Flyway),
+ * drives a realistic cart traffic mix at it and prints per-endpoint latency percentiles and throughput.
+ */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        // devtools would re-run main() in a restart class loader and start a second Redis server
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+
+        RedisServer redisServer = new RedisServer(settings.redisPort());
+        redisServer.start();
+        ConfigurableApplicationContext context = null;
+        try {
+            context = new SpringApplicationBuilder(EcomCartManagementSystemApplication.class)
+                    .run("--spring.profiles.active=loadtest",
+                            "--spring.data.redis.port=" + settings.redisPort());
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            String serverMode = context.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class, false)
+                    && Runtime.version().feature() >= 21 ? "virtual threads" : "platform threads";
+
+            HttpClient httpClient = HttpClient.newHttpClient();
+            for (int concurrency : settings.concurrencyLevels()) {
+                ExecutorService clients = clientExecutor(concurrency);
+                try {
+                    CartTrafficDriver driver = new CartTrafficDriver(URI.create("http://localhost:" + port), settings, concurrency, httpClient);
+                    driver.run(clients, serverMode).print(System.out);
+                } finally {
+                    clients.shutdownNow();
+                }
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            redisServer.stop();
+        }
+    }
+
+    // Thousands of closed-loop clients are cheap on virtual threads; Java 17 falls back to one platform thread each
+    private static ExecutorService clientExecutor(int concurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(concurrency);
+        }
+    }
+}
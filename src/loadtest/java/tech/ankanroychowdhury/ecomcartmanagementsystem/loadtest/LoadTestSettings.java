@@ -0,0 +1,31 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Load test knobs, read from system properties so they can be passed through {@code -Dloadtest.args}.
+ * {@code loadtest.concurrency} takes a comma separated list to sweep several client counts in one run;
+ * {@code loadtest.reactive-guest=true} sends guest cart traffic to the async {@code /api/v2/carts/guest} routes.
+ */
+public record LoadTestSettings(List<Integer> concurrencyLevels,
+                               Duration duration,
+                               Duration warmup,
+                               int itemsPerCart,
+                               int redisPort,
+                               boolean reactiveGuest) {
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Arrays.stream(System.getProperty("loadtest.concurrency", "32").split(","))
+                        .map(String::trim)
+                        .map(Integer::valueOf)
+                        .toList(),
+                Duration.parse(System.getProperty("loadtest.duration", "PT60S")),
+                Duration.parse(System.getProperty("loadtest.warmup", "PT10S")),
+                Integer.getInteger("loadtest.items-per-cart", 5),
+                Integer.getInteger("loadtest.redis-port", 6390),
+                Boolean.getBoolean("loadtest.reactive-guest"));
+    }
+}
@@ -6,6 +6,8 @@ import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.Cart;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.CartItem;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Component
 public class CartDtoToCartAdapterImpl implements CartDtoToCartAdapter {
@@ -26,17 +28,20 @@ public class CartDtoToCartAdapterImpl implements CartDtoToCartAdapter {
                     .active(true)
                     .build();
 
-            // Map CartItemDto to CartItem and set to Cart
+            // Map CartItemDto to CartItem and set to Cart, one line per product
+            Map<String, CartItem> itemsByProduct = new LinkedHashMap<>();
             if (cartDto.getCartItems() != null && !cartDto.getCartItems().isEmpty()) {
                 cartDto.getCartItems().forEach(itemDto -> {
-                    CartItem cartItem = this.cartItemDto.convertToCartItemFromCartItemDto(itemDto, cart);
-                    if(cart.getCartItems() == null || cart.getCartItems().isEmpty()){
-                        cart.setCartItems(new ArrayList<>());
-                        cart.getCartItems().add(cartItem);
+                    CartItem existing = itemsByProduct.get(itemDto.getProductId());
+                    if (existing != null) {
+                        existing.setQuantity(existing.getQuantity() + itemDto.getQuantity());
+                        existing.setPrice(itemDto.getPrice());
+                    } else {
+                        itemsByProduct.put(itemDto.getProductId(), this.cartItemDto.convertToCartItemFromCartItemDto(itemDto, cart));
                     }
-                    cart.getCartItems().add(cartItem);
                 });
             }
+            cart.setCartItems(new ArrayList<>(itemsByProduct.values()));
             return cart;
         } catch (Exception e) {
             throw new RuntimeException("Failed to convert CartDto to Cart entity", e.getCause());
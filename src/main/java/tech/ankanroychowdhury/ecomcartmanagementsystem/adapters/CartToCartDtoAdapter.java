@@ -2,7 +2,14 @@ package tech.ankanroychowdhury.ecomcartmanagementsystem.adapters;
 
 import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.Cart;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.projections.CartItemRowProjection;
+
+import java.util.List;
 
 public interface CartToCartDtoAdapter {
     CartDto convertToCartDto(Cart cart);
+
+    CartDto convertToCartDtoWithMetadata(Cart cart);
+
+    CartDto convertToCartDto(List<CartItemRowProjection> cartRows);
 }
@@ -3,9 +3,14 @@ package tech.ankanroychowdhury.ecomcartmanagementsystem.adapters;
 import org.springframework.stereotype.Component;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartMetadataDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartTotalsDto;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.Cart;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.CartItem;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.CartMetadata;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.projections.CartItemRowProjection;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -18,6 +23,42 @@ public class CartToCartDtoAdapterImpl implements CartToCartDtoAdapter {
                 .cartId(cart.getCartId())
                 .userId(cart.getUserId())
                 .cartItems(convertToCartItemDtoList(cart.getCartItems()))
+                .totals(new CartTotalsDto(cart.getItemCount(), cart.getSubtotalMinor()))
+                .journalOffset(cart.getJournalOffset())
+                .build();
+    }
+
+    @Override
+    public CartDto convertToCartDtoWithMetadata(Cart cart) {
+        CartDto cartDto = convertToCartDto(cart);
+        cartDto.setMetadata(convertToCartMetadataDto(cart.getMetadata()));
+        return cartDto;
+    }
+
+    @Override
+    public CartDto convertToCartDto(List<CartItemRowProjection> cartRows) {
+        if (cartRows.isEmpty()) {
+            return null;
+        }
+        // Every row repeats the cart columns; items are absent when the cart is empty (left join)
+        CartItemRowProjection firstRow = cartRows.get(0);
+        List<CartItemDto> cartItems = new ArrayList<>(cartRows.size());
+        for (CartItemRowProjection row : cartRows) {
+            if (row.itemId() != null) {
+                cartItems.add(CartItemDto.builder()
+                        .itemId(row.itemId())
+                        .productId(row.productId())
+                        .quantity(row.quantity())
+                        .price(row.price())
+                        .build());
+            }
+        }
+        return CartDto.builder()
+                .cartId(firstRow.cartId())
+                .userId(firstRow.userId())
+                .cartItems(cartItems)
+                .totals(new CartTotalsDto(firstRow.itemCount(), firstRow.subtotalMinor()))
+                .journalOffset(firstRow.journalOffset())
                 .build();
     }
 
@@ -37,4 +78,17 @@ public class CartToCartDtoAdapterImpl implements CartToCartDtoAdapter {
                 .price(cartItem.getPrice())
                 .build();
     }
+
+    private CartMetadataDto convertToCartMetadataDto(CartMetadata metadata) {
+        if (metadata == null) {
+            return null;
+        }
+        return CartMetadataDto.builder()
+                .deviceType(metadata.getDeviceType())
+                .browser(metadata.getBrowser())
+                .operatingSystem(metadata.getOperatingSystem())
+                .ipAddress(metadata.getIpAddress())
+                .additionalInfo(metadata.getAdditionalInfo())
+                .build();
+    }
 }
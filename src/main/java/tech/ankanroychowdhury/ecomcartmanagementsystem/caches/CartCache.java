@@ -0,0 +1,24 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.caches;
+
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Carts handed out and accepted by the cache are copies, so callers are free to modify them.
+ */
+public interface CartCache {
+    Optional<CartDto> get(String cartId);
+    Map<String, CartDto> getAll(Collection<String> cartIds);
+
+    // Writes a cart just committed by a write
+    void put(CartDto cartDto);
+
+    // Fills an empty entry with a cart read from the database; never overwrites, and skips carts evicted since
+    void populate(CartDto cartDto);
+
+    void evict(String cartId);
+    CartCacheStats stats();
+}
@@ -0,0 +1,4 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.caches;
+
+public record CartCacheStats(long localHits, long remoteHits, long misses, long evictions, long invalidations) {
+}
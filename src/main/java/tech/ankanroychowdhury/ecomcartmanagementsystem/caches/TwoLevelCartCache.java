@@ -0,0 +1,275 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.caches;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.CartCacheProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartMetadataDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartTotalsDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.serializers.CartDtoRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * User cart cache with a bounded in-process tier (L1) in front of Redis (L2).
+ * Redis failures are logged and treated as misses so the database remains the source of truth.
+ * <p>
+ * An eviction leaves a short-lived tombstone in both tiers. Until it expires no write lands for that cart, so a
+ * reader that loaded the cart before the eviction can't put its stale copy back for the whole TTL.
+ * <p>
+ * L1 is per instance, so evictions and overwrites are also published on a Redis channel, by the same script that
+ * changes L2. Every other instance drops its copy and tombstones it locally, as if it had evicted the cart itself.
+ */
+@Slf4j
+@Component
+public class TwoLevelCartCache implements CartCache {
+
+    // Versioned with the shape of CartDto, so a deploy doesn't serve entries written without newer fields
+    private static final String KEY_PREFIX = "cart:user:v2:";
+    private static final String TOMBSTONE_KEY_PREFIX = "cart:user:v2:evicted:";
+
+    // KEYS: cart, tombstone. ARGV: cart, ttlMillis, mode (put|populate), channel, invalidation. Returns 1 when the cart
+    // was written. Only a put replaces a cart other instances may hold; populate fills a gap left by an eviction.
+    private static final RedisScript<Long> WRITE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[2]) == 1 then
+                return 0
+            end
+            if ARGV[3] == 'populate' then
+                return redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2], 'NX') and 1 or 0
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            redis.call('PUBLISH', ARGV[4], ARGV[5])
+            return 1
+            """, Long.class);
+
+    // KEYS: cart, tombstone. ARGV: tombstoneTtlMillis, channel, invalidation.
+    private static final RedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('SET', KEYS[2], '1', 'PX', ARGV[1])
+            local deleted = redis.call('DEL', KEYS[1])
+            redis.call('PUBLISH', ARGV[2], ARGV[3])
+            return deleted
+            """, Long.class);
+
+    private final Cache<String, CartDto> localCache;
+    private final Cache<String, Boolean> localTombstones;
+    private final RedisTemplate<String, CartDto> redisTemplate;
+    private final CartDtoRedisSerializer cartSerializer;
+    private final Duration remoteTimeToLive;
+    private final Duration evictionGuard;
+    private final String invalidationChannel;
+    // Invalidations are "<instance> <cartId>"; an instance skips its own
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public TwoLevelCartCache(RedisTemplate<String, CartDto> redisTemplate,
+                             CartDtoRedisSerializer cartSerializer,
+                             RedisMessageListenerContainer listenerContainer,
+                             CartCacheProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.cartSerializer = cartSerializer;
+        this.remoteTimeToLive = properties.getRemoteTimeToLive();
+        this.evictionGuard = properties.getEvictionGuard();
+        this.invalidationChannel = properties.getInvalidationChannel();
+        this.localTombstones = Caffeine.newBuilder()
+                .expireAfterWrite(evictionGuard)
+                .build();
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaximumSize())
+                .expireAfterWrite(properties.getLocalTimeToLive())
+                .removalListener((String key, CartDto value, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+        listenerContainer.addMessageListener(this::onInvalidation, new ChannelTopic(invalidationChannel));
+    }
+
+    @Override
+    public Optional<CartDto> get(String cartId) {
+        CartDto cartDto = localCache.getIfPresent(cartId);
+        if (cartDto != null) {
+            localHits.increment();
+            return Optional.of(copyOf(cartDto));
+        }
+
+        cartDto = readRemote(cartId);
+        if (cartDto != null) {
+            remoteHits.increment();
+            putLocal(cartId, copyOf(cartDto));
+            return Optional.of(cartDto);
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    @Override
+    public Map<String, CartDto> getAll(Collection<String> cartIds) {
+        Map<String, CartDto> found = new HashMap<>();
+        localCache.getAllPresent(cartIds).forEach((cartId, cartDto) -> found.put(cartId, copyOf(cartDto)));
+        localHits.add(found.size());
+
+        List<String> remaining = cartIds.stream().filter(cartId -> !found.containsKey(cartId)).toList();
+        if (!remaining.isEmpty()) {
+            // One MGET for everything L1 did not have
+            List<CartDto> remoteCarts = readRemote(remaining);
+            for (int i = 0; i < remaining.size(); i++) {
+                CartDto cartDto = remoteCarts.get(i);
+                if (cartDto != null) {
+                    remoteHits.increment();
+                    putLocal(remaining.get(i), copyOf(cartDto));
+                    found.put(remaining.get(i), cartDto);
+                } else {
+                    misses.increment();
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void put(CartDto cartDto) {
+        write(cartDto, "put");
+    }
+
+    @Override
+    public void populate(CartDto cartDto) {
+        write(cartDto, "populate");
+    }
+
+    @Override
+    public void evict(String cartId) {
+        evictLocal(cartId);
+        try {
+            redisTemplate.execute(EVICT_SCRIPT, RedisSerializer.string(), null,
+                    List.of(generateKey(cartId), TOMBSTONE_KEY_PREFIX + cartId),
+                    String.valueOf(evictionGuard.toMillis()), invalidationChannel, invalidation(cartId));
+        } catch (Exception e) {
+            log.warn("Unable to evict cart {} from Redis cache", cartId, e);
+        }
+    }
+
+    @Override
+    public CartCacheStats stats() {
+        return new CartCacheStats(localHits.sum(), remoteHits.sum(), misses.sum(), evictions.sum(), invalidations.sum());
+    }
+
+    private void write(CartDto cartDto, String mode) {
+        String cartId = cartDto.getCartId();
+        Long written;
+        try {
+            written = redisTemplate.execute(WRITE_SCRIPT, RedisSerializer.byteArray(), null,
+                    List.of(generateKey(cartId), TOMBSTONE_KEY_PREFIX + cartId),
+                    cartSerializer.serialize(cartDto), bytes(remoteTimeToLive.toMillis()), bytes(mode),
+                    bytes(invalidationChannel), bytes(invalidation(cartId)));
+        } catch (Exception e) {
+            // Without Redis the tombstone can't be checked, so only the local tier's guard applies
+            log.warn("Unable to write cart {} to Redis cache", cartId, e);
+            written = 1L;
+        }
+        if (written != null && written == 1L) {
+            putLocal(cartId, copyOf(cartDto));
+        }
+    }
+
+    private void evictLocal(String cartId) {
+        // Tombstone first: a concurrent putLocal either lands before the invalidation or sees the tombstone
+        localTombstones.put(cartId, Boolean.TRUE);
+        localCache.invalidate(cartId);
+        invalidations.increment();
+    }
+
+    // A reader here may have fetched the old cart from L2 just before the message, so its copy is refused for a while
+    private void onInvalidation(Message message, byte[] pattern) {
+        String invalidation = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = invalidation.indexOf(' ');
+        if (separator < 0 || invalidation.substring(0, separator).equals(instanceId)) {
+            return;
+        }
+        evictLocal(invalidation.substring(separator + 1));
+    }
+
+    private String invalidation(String cartId) {
+        return instanceId + " " + cartId;
+    }
+
+    private void putLocal(String cartId, CartDto cartDto) {
+        // Serialized with invalidate() for the same key, see evict()
+        localCache.asMap().compute(cartId, (key, current) ->
+                localTombstones.getIfPresent(key) != null ? current : cartDto);
+    }
+
+    private CartDto readRemote(String cartId) {
+        try {
+            return redisTemplate.opsForValue().get(generateKey(cartId));
+        } catch (Exception e) {
+            log.warn("Unable to read cart {} from Redis cache", cartId, e);
+            return null;
+        }
+    }
+
+    private List<CartDto> readRemote(List<String> cartIds) {
+        try {
+            List<CartDto> cartDtos = redisTemplate.opsForValue().multiGet(cartIds.stream().map(this::generateKey).toList());
+            if (cartDtos != null) {
+                return cartDtos;
+            }
+        } catch (Exception e) {
+            log.warn("Unable to read {} carts from Redis cache", cartIds.size(), e);
+        }
+        List<CartDto> misses = new ArrayList<>(cartIds.size());
+        cartIds.forEach(cartId -> misses.add(null));
+        return misses;
+    }
+
+    private String generateKey(String cartId) {
+        return KEY_PREFIX + cartId;
+    }
+
+    private static byte[] bytes(Object value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static CartDto copyOf(CartDto cartDto) {
+        CartTotalsDto totals = cartDto.getTotals();
+        CartMetadataDto metadata = cartDto.getMetadata();
+        return CartDto.builder()
+                .cartId(cartDto.getCartId())
+                .userId(cartDto.getUserId())
+                .cartItems(cartDto.getCartItems() == null ? null : cartDto.getCartItems().stream()
+                        .map(item -> new CartItemDto(item.getItemId(), item.getProductId(), item.getQuantity(), item.getPrice()))
+                        .collect(Collectors.toCollection(ArrayList::new)))
+                .totals(totals == null ? null : new CartTotalsDto(totals.getItemCount(), totals.getSubtotalMinor()))
+                .metadata(metadata == null ? null : new CartMetadataDto(metadata.getDeviceType(), metadata.getBrowser(),
+                        metadata.getOperatingSystem(), metadata.getIpAddress(), metadata.getAdditionalInfo()))
+                .journalOffset(cartDto.getJournalOffset())
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cart.cache")
+public class CartCacheProperties {
+
+    // Upper bound on the number of carts held in the in-process (L1) tier
+    private long localMaximumSize = 10_000;
+
+    // Other instances drop their L1 copy when told over invalidationChannel; this bounds how long one can stay stale
+    // when a message is lost, e.g. while the subscription reconnects
+    private Duration localTimeToLive = Duration.ofSeconds(30);
+
+    // Redis pub/sub channel on which every instance announces the carts it evicted or rewrote
+    private String invalidationChannel = "cart:user:v2:invalidations";
+
+    private Duration remoteTimeToLive = Duration.ofMinutes(30);
+
+    // How long an evicted cart refuses writes, so a read that loaded it before the eviction can't cache it again.
+    // Must outlast the slowest database read of a cart.
+    private Duration evictionGuard = Duration.ofSeconds(5);
+
+    // Carts whose encoded form reaches this size are gzipped before going to Redis
+    private DataSize compressionThreshold = DataSize.ofKilobytes(1);
+}
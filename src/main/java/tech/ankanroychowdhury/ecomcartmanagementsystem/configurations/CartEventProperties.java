@@ -0,0 +1,38 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cart.events")
+public class CartEventProperties {
+
+    private boolean enabled = true;
+
+    private String streamKey = "cart:events";
+
+    // Trimmed approximately (MAXLEN ~); a consumer that falls further behind than this misses events
+    private long maxLength = 1_000_000;
+
+    // Groups created on the stream up front, so their consumers see every event from the first publish on
+    private List<String> consumerGroups = new ArrayList<>();
+
+    // Outbox rows relayed per transaction and pipelined round trip
+    private int batchSize = 500;
+
+    private Duration relayInterval = Duration.ofMillis(100);
+
+    // One instance relays at a time; if it stops renewing, another takes over after this long
+    private Duration relayLeaseTime = Duration.ofSeconds(10);
+
+    // After a failed relay the next attempt waits this long, doubling per consecutive failure up to maxBackoff
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    private Duration maxBackoff = Duration.ofMinutes(1);
+}
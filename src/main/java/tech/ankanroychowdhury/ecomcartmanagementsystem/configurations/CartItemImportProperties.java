@@ -0,0 +1,17 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cart.item-import")
+public class CartItemImportProperties {
+
+    // Distinct products written per transaction; bounds both memory and how long its item rows stay locked
+    private int batchSize = 500;
+
+    // Rejected lines listed in the response; the rest are only counted
+    private int maxReportedErrors = 100;
+}
@@ -0,0 +1,33 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cart.reaper")
+public class CartReaperProperties {
+
+    private boolean enabled = true;
+
+    private Duration interval = Duration.ofMinutes(5);
+
+    // Soft-deleted carts are kept this long after their last update before being archived
+    private Duration inactiveRetention = Duration.ofDays(7);
+
+    // Active carts untouched for this long are treated as abandoned and archived
+    private Duration staleAfter = Duration.ofDays(90);
+
+    private int batchSize = 500;
+
+    private Duration pauseBetweenBatches = Duration.ofMillis(200);
+
+    // Bounds a single run; the cluster-wide lock outlives it by a safety margin
+    private Duration maxRunDuration = Duration.ofMinutes(4);
+
+    // Above this share of busy database connections the reaper yields to foreground traffic
+    private double maxPoolUsage = 0.5;
+}
@@ -1,19 +1,36 @@
 package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.filters.ThrottlingFilter;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.metrics.StatementCountFilter;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.ratelimit.RateLimitBackend;
 
 @Configuration
 public class FilterConfig {
 
     @Bean
-    public FilterRegistrationBean<ThrottlingFilter> rateLimitingFilter() {
+    public ThrottlingFilter throttlingFilter(RateLimitBackend rateLimitBackend, RateLimitProperties rateLimitProperties) {
+        return new ThrottlingFilter(rateLimitBackend, rateLimitProperties);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ThrottlingFilter> rateLimitingFilter(ThrottlingFilter throttlingFilter) {
         FilterRegistrationBean<ThrottlingFilter> registrationBean = new FilterRegistrationBean<>();
-        registrationBean.setFilter(new ThrottlingFilter());
+        registrationBean.setFilter(throttlingFilter);
         registrationBean.addUrlPatterns("/*");
         registrationBean.setOrder(1);
         return registrationBean;
     }
+
+    @Bean
+    public FilterRegistrationBean<StatementCountFilter> statementCountFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<StatementCountFilter> registrationBean = new FilterRegistrationBean<>();
+        registrationBean.setFilter(new StatementCountFilter(meterRegistry));
+        registrationBean.addUrlPatterns("/api/*");
+        registrationBean.setOrder(2);
+        return registrationBean;
+    }
 }
@@ -0,0 +1,22 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cart.guest")
+public class GuestCartProperties {
+
+    // Sliding expiry, refreshed every time the guest cart is read or modified
+    private Duration timeToLive = Duration.ofHours(1);
+
+    // How long a merged guest cart remembers its target user so retried merges stay idempotent
+    private Duration mergeMarkerTimeToLive = Duration.ofHours(24);
+
+    // How long a merge holds its guest cart and user; a claim left by a crashed instance can be retried after this
+    private Duration mergeClaimTimeToLive = Duration.ofMinutes(1);
+}
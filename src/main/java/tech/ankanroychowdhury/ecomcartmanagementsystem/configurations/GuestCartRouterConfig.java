@@ -0,0 +1,25 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.servlet.function.RequestPredicates;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerResponse;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.controllers.GuestCartHandler;
+
+@Configuration
+public class GuestCartRouterConfig {
+
+    @Bean
+    public RouterFunction<ServerResponse> guestCartRoutes(GuestCartHandler guestCartHandler) {
+        return RouterFunctions.route()
+                .path("/api/v2/carts/guest", builder -> builder
+                        .POST(RequestPredicates.contentType(MediaType.APPLICATION_JSON), guestCartHandler::createCart)
+                        .GET(guestCartHandler::getCart))
+                .onError(HttpMessageNotReadableException.class, guestCartHandler::invalidBody)
+                .build();
+    }
+}
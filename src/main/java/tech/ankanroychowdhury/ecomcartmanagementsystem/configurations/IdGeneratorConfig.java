@@ -0,0 +1,27 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.CartItemIdGenerator;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.WorkerLease;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean(destroyMethod = "close")
+    public WorkerLease cartItemWorkerLease(DataSource dataSource, IdGeneratorProperties properties) {
+        // The JPA transaction manager can't be used here: the entity listener needing the generator is built with it.
+        return new WorkerLease(new JdbcTemplate(dataSource),
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), properties.getWorkerLeaseTime());
+    }
+
+    @Bean
+    public CartItemIdGenerator cartItemIdGenerator(WorkerLease cartItemWorkerLease) {
+        return new CartItemIdGenerator(cartItemWorkerLease::workerId);
+    }
+}
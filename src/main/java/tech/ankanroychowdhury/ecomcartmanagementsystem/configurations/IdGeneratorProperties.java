@@ -0,0 +1,16 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cart.id-generator")
+public class IdGeneratorProperties {
+
+    // How long a dead instance keeps its worker id; a running one renews its lease every third of this
+    private Duration workerLeaseTime = Duration.ofMinutes(1);
+}
@@ -0,0 +1,19 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cart.idempotency")
+public class IdempotencyProperties {
+
+    // How long the first response is replayed for retries carrying the same key
+    private Duration timeToLive = Duration.ofHours(24);
+
+    // How long a key stays claimed if the instance dies mid-request; refreshed while the request is running
+    private Duration inProgressTimeToLive = Duration.ofSeconds(30);
+}
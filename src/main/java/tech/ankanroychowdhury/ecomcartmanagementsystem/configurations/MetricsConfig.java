@@ -0,0 +1,51 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.caches.CartCache;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.filters.ThrottlingFilter;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.metrics.StatementCountingInspector;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector());
+    }
+
+    @Bean
+    public MeterBinder rateLimitMetrics(ThrottlingFilter throttlingFilter) {
+        return registry -> {
+            FunctionCounter.builder("cart.ratelimit.requests", throttlingFilter, ThrottlingFilter::getAllowedCount)
+                    .tag("outcome", "allowed")
+                    .register(registry);
+            FunctionCounter.builder("cart.ratelimit.requests", throttlingFilter, ThrottlingFilter::getRejectedCount)
+                    .tag("outcome", "rejected")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder cartCacheMetrics(CartCache cartCache) {
+        return registry -> {
+            FunctionCounter.builder("cart.cache.gets", cartCache, cache -> cache.stats().localHits())
+                    .tag("result", "local_hit")
+                    .register(registry);
+            FunctionCounter.builder("cart.cache.gets", cartCache, cache -> cache.stats().remoteHits())
+                    .tag("result", "remote_hit")
+                    .register(registry);
+            FunctionCounter.builder("cart.cache.gets", cartCache, cache -> cache.stats().misses())
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("cart.cache.evictions", cartCache, cache -> cache.stats().evictions())
+                    .register(registry);
+            FunctionCounter.builder("cart.cache.invalidations", cartCache, cache -> cache.stats().invalidations())
+                    .register(registry);
+        };
+    }
+}
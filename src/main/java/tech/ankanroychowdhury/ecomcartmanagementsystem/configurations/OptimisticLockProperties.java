@@ -0,0 +1,19 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cart.optimistic-lock")
+public class OptimisticLockProperties {
+
+    // Attempts per write, including the first one, before a version conflict is reported to the client as 409
+    private int maxAttempts = 3;
+
+    // Base wait before a retry; grows with every attempt and gets a random jitter so competing writers spread out
+    private Duration backoff = Duration.ofMillis(10);
+}
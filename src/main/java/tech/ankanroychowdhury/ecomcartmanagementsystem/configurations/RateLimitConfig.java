@@ -0,0 +1,56 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.serialization.Mapper;
+import io.github.bucket4j.redis.jedis.Bucket4jJedis;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.DefaultJedisClientConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisPooled;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.ratelimit.LocalRateLimitBackend;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.ratelimit.RateLimitBackend;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.ratelimit.RedisRateLimitBackend;
+
+import java.time.Duration;
+
+@Configuration
+public class RateLimitConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "cart.rate-limit", name = "backend", havingValue = "local", matchIfMissing = true)
+    public RateLimitBackend localRateLimitBackend(RateLimitProperties properties) {
+        return new LocalRateLimitBackend(properties.getLocal());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "cart.rate-limit", name = "backend", havingValue = "redis")
+    public JedisPooled rateLimitJedis(RedisProperties redisProperties, RateLimitProperties properties) {
+        DefaultJedisClientConfig.Builder clientConfig = DefaultJedisClientConfig.builder()
+                .user(redisProperties.getUsername())
+                .password(redisProperties.getPassword())
+                .ssl(redisProperties.getSsl().isEnabled());
+        if (redisProperties.getTimeout() != null) {
+            clientConfig.timeoutMillis((int) redisProperties.getTimeout().toMillis());
+        }
+        GenericObjectPoolConfig<Connection> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setMaxTotal(properties.getRedis().getMaxConnections());
+        poolConfig.setMaxIdle(properties.getRedis().getMaxConnections());
+        return new JedisPooled(new HostAndPort(redisProperties.getHost(), redisProperties.getPort()), clientConfig.build(), poolConfig);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "cart.rate-limit", name = "backend", havingValue = "redis")
+    public RateLimitBackend redisRateLimitBackend(JedisPooled rateLimitJedis, RateLimitProperties properties) {
+        // Bucket keys disappear once a bucket would have refilled anyway, so idle clients cost nothing
+        var proxyManager = Bucket4jJedis.casBasedBuilder(rateLimitJedis)
+                .expirationAfterWrite(ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(Duration.ofSeconds(10)))
+                .keyMapper(Mapper.STRING)
+                .build();
+        return new RedisRateLimitBackend(proxyManager, properties.getRedis().getKeyPrefix());
+    }
+}
@@ -0,0 +1,77 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cart.rate-limit")
+public class RateLimitProperties {
+
+    private Backend backend = Backend.LOCAL;
+
+    private ClientKey clientKey = ClientKey.IP;
+
+    // Used when clientKey is HEADER; requests without the header fall back to the client IP
+    private String clientKeyHeader = "X-Client-Id";
+
+    private Limit defaultLimit = new Limit(50, Duration.ofMinutes(1));
+
+    // Evaluated in order, the first route whose pattern (and method, when set) matches wins
+    private List<Route> routes = new ArrayList<>();
+
+    private Local local = new Local();
+
+    private Redis redis = new Redis();
+
+    public enum Backend {
+        LOCAL,
+        REDIS
+    }
+
+    public enum ClientKey {
+        IP,
+        HEADER
+    }
+
+    @Getter
+    @Setter
+    public static class Limit {
+        private long capacity;
+        private Duration refillPeriod;
+
+        public Limit() {
+        }
+
+        public Limit(long capacity, Duration refillPeriod) {
+            this.capacity = capacity;
+            this.refillPeriod = refillPeriod;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Route extends Limit {
+        private String pattern;
+        private String method;
+    }
+
+    @Getter
+    @Setter
+    public static class Local {
+        private long maximumBuckets = 100_000;
+        private Duration idleTimeout = Duration.ofMinutes(10);
+    }
+
+    @Getter
+    @Setter
+    public static class Redis {
+        private String keyPrefix = "rate-limit:";
+        private int maxConnections = 16;
+    }
+}
@@ -7,8 +7,11 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.serializers.CartDtoRedisSerializer;
 
 @Configuration
 public class RedisConfig {
@@ -28,4 +31,27 @@ public class RedisConfig {
         redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer(objectMapper));
         return redisTemplate;
     }
+
+    @Bean
+    public CartDtoRedisSerializer cartDtoRedisSerializer(ObjectMapper objectMapper, CartCacheProperties cartCacheProperties) {
+        return new CartDtoRedisSerializer(objectMapper, (int) cartCacheProperties.getCompressionThreshold().toBytes());
+    }
+
+    @Bean
+    public RedisTemplate<String, CartDto> cartRedisTemplate(RedisConnectionFactory redisConnectionFactory,
+                                                           CartDtoRedisSerializer cartDtoRedisSerializer) {
+        RedisTemplate<String, CartDto> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(redisConnectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(cartDtoRedisSerializer);
+        return redisTemplate;
+    }
+
+    // Delivers cart cache invalidations published by other instances
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
 }
@@ -0,0 +1,9 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,34 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.configurations;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cart.write-behind")
+public class WriteBehindProperties {
+
+    // When on, item adds for user carts are acknowledged once journaled in Redis and reach MySQL in the background
+    private boolean enabled = false;
+
+    private String streamKey = "cart:journal";
+
+    private String consumerGroup = "cart-journal-flusher";
+
+    // Journal entries applied per flush, in one transaction
+    private int batchSize = 500;
+
+    private Duration pollInterval = Duration.ofMillis(100);
+
+    // Entries a flusher read but never acknowledged (e.g. the instance died) are taken over after this long
+    private Duration claimAfter = Duration.ofSeconds(30);
+
+    // An entry that fails this many times for a reason other than a transient database error is moved to the
+    // dead-letter stream, so the adds after it in the same cart can go through
+    private int maxAttempts = 5;
+
+    private String deadLetterStreamKey = "cart:journal:dead-letter";
+}
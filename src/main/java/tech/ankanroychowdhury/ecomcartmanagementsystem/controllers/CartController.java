@@ -1,75 +1,124 @@
 package tech.ankanroychowdhury.ecomcartmanagementsystem.controllers;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.jdi.request.DuplicateRequestException;
+import io.micrometer.core.annotation.Timed;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.BulkCartRequestDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.BulkCartsDto;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartExportDto;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemImportDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemPageDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartSummaryDto;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.ResponseDto;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.UpdateCartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.UpdateCartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.CartConflictException;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.CartNotFoundException;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.InvalidCartOperationException;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.RedisOperationException;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.services.CartService;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.services.IdempotencyService;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.CartItemImportReader;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.ResponseBuilder;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+
+import static tech.ankanroychowdhury.ecomcartmanagementsystem.filters.ThrottlingFilter.CLIENT_KEY_ATTRIBUTE;
+import static tech.ankanroychowdhury.ecomcartmanagementsystem.services.IdempotencyService.IDEMPOTENCY_KEY_HEADER;
 
 
 @RestController
+@Timed("cart.controller")
 @RequestMapping("/api/v1/carts")
 @Tag(name = "Cart Management", description = "Operations related to managing user carts")
 public class CartController {
 
     private final CartService cartService;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
     private static final String CART_NOT_FOUND_MSG = "Cart not found";
     private static final String REDIS_GENERAL_ERROR_MSG = "Redis operation failed";
+    private static final String CART_CONFLICT_MSG = "Cart was modified concurrently";
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final TypeReference<ResponseDto<CartDto>> CART_RESPONSE_TYPE = new TypeReference<>() {};
+    private static final TypeReference<ResponseDto<CartItemImportDto>> IMPORT_RESPONSE_TYPE = new TypeReference<>() {};
+    private static final TypeReference<ResponseDto<Void>> VOID_RESPONSE_TYPE = new TypeReference<>() {};
 
-    public CartController(CartService cartService, RedisTemplate<String, Object> redisTemplate) {
+    public CartController(CartService cartService, IdempotencyService idempotencyService, ObjectMapper objectMapper) {
         this.cartService = cartService;
-        this.redisTemplate = redisTemplate;
+        this.idempotencyService = idempotencyService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
-    public ResponseEntity<ResponseDto<CartDto>> saveCart(@Valid @RequestBody CartDto cartDto) {
-        try {
-            CartDto savedCart = (cartDto.getUserId() == null || cartDto.getUserId().isEmpty())
-                    ? cartService.saveCartInRedis(cartDto)
-                    : cartService.saveCart(cartDto);
-            return ResponseBuilder.success("Cart created successfully", savedCart);
-        } catch (RedisOperationException e) {
-            return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, REDIS_GENERAL_ERROR_MSG, List.of(e.getMessage()));
-        } catch (Exception e) {
-            return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to create cart", List.of(e.getMessage()));
-        }
+    public ResponseEntity<ResponseDto<CartDto>> saveCart(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                         @RequestAttribute(value = CLIENT_KEY_ATTRIBUTE, required = false) String clientKey,
+                                                         @Valid @RequestBody CartDto cartDto) {
+        // There is no cart yet, so keys are scoped to the caller: the user, or the client for a guest cart
+        String caller = (cartDto.getUserId() == null || cartDto.getUserId().isEmpty())
+                ? "client:" + clientKey
+                : "user:" + cartDto.getUserId();
+        return idempotencyService.execute(idempotencyKey, "create-cart:" + caller, cartDto, CART_RESPONSE_TYPE, () -> {
+            try {
+                CartDto savedCart = (cartDto.getUserId() == null || cartDto.getUserId().isEmpty())
+                        ? cartService.saveCartInRedis(cartDto)
+                        : cartService.saveCart(cartDto);
+                return ResponseBuilder.success("Cart created successfully", savedCart);
+            } catch (RedisOperationException e) {
+                return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, REDIS_GENERAL_ERROR_MSG, List.of(e.getMessage()));
+            } catch (Exception e) {
+                return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to create cart", List.of(e.getMessage()));
+            }
+        });
     }
 
     @PostMapping("/merge/{userId}")
-    public ResponseEntity<ResponseDto<CartDto>> mergeCart(@RequestParam String cartId, @PathVariable String userId) {
-        try {
-            CartDto guestCart = cartService.getCartFromRedis(cartId);
-            guestCart.setUserId(userId);
-            CartDto mergedCart = cartService.saveCart(guestCart);
-            redisTemplate.opsForValue().getAndDelete("cart:guest:" + cartId);
-            return ResponseBuilder.success("Successfully merged cart", mergedCart);
-        } catch (CartNotFoundException e) {
-            return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
-        } catch (RedisOperationException e) {
-            return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, REDIS_GENERAL_ERROR_MSG, List.of(e.getMessage()));
-        } catch (Exception e) {
-            return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to merge cart", List.of(e.getMessage()));
-        }
+    public ResponseEntity<ResponseDto<CartDto>> mergeCart(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, @RequestParam String cartId, @PathVariable String userId) {
+        return idempotencyService.execute(idempotencyKey, "merge-cart:" + userId + ":" + cartId, null, CART_RESPONSE_TYPE, () -> {
+            try {
+                CartDto mergedCart = cartService.mergeGuestCart(cartId, userId);
+                return ResponseBuilder.success("Successfully merged cart", mergedCart);
+            } catch (CartNotFoundException e) {
+                return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
+            } catch (InvalidCartOperationException e) {
+                return ResponseBuilder.error(HttpStatus.CONFLICT, "Invalid cart operation", List.of(e.getMessage()));
+            } catch (RedisOperationException e) {
+                return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, REDIS_GENERAL_ERROR_MSG, List.of(e.getMessage()));
+            } catch (CartConflictException e) {
+                return ResponseBuilder.error(HttpStatus.CONFLICT, CART_CONFLICT_MSG, List.of(e.getMessage()));
+            } catch (Exception e) {
+                return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to merge cart", List.of(e.getMessage()));
+            }
+        });
     }
 
     @GetMapping
-    public ResponseEntity<ResponseDto<CartDto>> getCartById(@RequestParam String cartId) {
+    public ResponseEntity<ResponseDto<CartDto>> getCartById(@RequestParam String cartId,
+                                                           @RequestParam(defaultValue = "false") boolean includeMetadata) {
         try {
-            CartDto cartDto = this.cartService.getCartById(cartId);
+            CartDto cartDto = this.cartService.getCartById(cartId, includeMetadata);
             return ResponseBuilder.success("Cart retrieved successfully", cartDto);
         } catch (CartNotFoundException e) {
             return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
@@ -78,11 +127,12 @@ public class CartController {
         }
     }
 
-    @GetMapping("/guest")
-    public ResponseEntity<ResponseDto<CartDto>> getGuestCart(@RequestParam String cartId) {
+    // Totals without the items, for carts too large to fetch whole on every view
+    @GetMapping("/summary")
+    public ResponseEntity<ResponseDto<CartSummaryDto>> getCartSummary(@RequestParam String cartId) {
         try {
-            CartDto cartDto = this.cartService.getCartFromRedis(cartId);
-            return ResponseBuilder.success("Cart retrieved successfully", cartDto);
+            CartSummaryDto summary = this.cartService.getCartSummary(cartId);
+            return ResponseBuilder.success("Cart summary retrieved successfully", summary);
         } catch (CartNotFoundException e) {
             return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
         } catch (Exception e) {
@@ -90,46 +140,269 @@ public class CartController {
         }
     }
 
-
-    @PatchMapping("/items")
-    public ResponseEntity<ResponseDto<CartDto>> addItemsToCart(@RequestParam String cartId, @Valid @RequestBody List<CartItemDto> cartItems) {
+    // One page of a cart's items; continue with after=<nextAfter> until nextAfter is null
+    @GetMapping("/items")
+    public ResponseEntity<ResponseDto<CartItemPageDto>> getCartItems(@RequestParam String cartId,
+                                                                     @RequestParam(required = false) Long after,
+                                                                     @RequestParam(defaultValue = "100") int limit) {
         try {
-            CartDto updatedCart = cartService.addItemsToCart(cartId, cartItems);
-            return ResponseBuilder.success("Successfully added items to cart", updatedCart);
+            CartItemPageDto page = this.cartService.getCartItems(cartId, after, limit);
+            return ResponseBuilder.success("Cart items retrieved successfully", page);
         } catch (CartNotFoundException e) {
             return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
         } catch (InvalidCartOperationException e) {
             return ResponseBuilder.error(HttpStatus.BAD_REQUEST, "Invalid cart operation", List.of(e.getMessage()));
         } catch (Exception e) {
-            return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while adding items to the cart", List.of(e.getMessage()));
+            return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while retrieving the cart items", List.of(e.getMessage()));
         }
     }
 
-    @DeleteMapping
-    public ResponseEntity<ResponseDto<Void>> deleteCart(@RequestParam String cartId) {
+    @GetMapping("/users/{userId}/active")
+    public ResponseEntity<ResponseDto<CartDto>> getActiveCartByUserId(@PathVariable String userId) {
         try {
-            this.cartService.deleteCart(cartId);
-            return ResponseBuilder.success("Cart deleted successfully", null);
+            CartDto cartDto = this.cartService.getActiveCartByUserId(userId);
+            return ResponseBuilder.success("Cart retrieved successfully", cartDto);
         } catch (CartNotFoundException e) {
             return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
         } catch (Exception e) {
-            return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while deleting the cart", List.of(e.getMessage()));
+            return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while retrieving the cart", List.of(e.getMessage()));
         }
     }
 
-    @PutMapping
-    public ResponseEntity<ResponseDto<CartDto>> updateCart(@RequestParam String cartId, @Valid @RequestBody UpdateCartDto updateCartDto) {
+    @PostMapping(value = "/bulk", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResponseDto<BulkCartsDto>> getCartsByIds(@Valid @RequestBody BulkCartRequestDto bulkCartRequestDto) {
+        try {
+            List<CartDto> carts = new ArrayList<>(bulkCartRequestDto.getCartIds().size());
+            this.cartService.streamCartsByIds(bulkCartRequestDto.getCartIds(), carts::add);
+            Set<String> missingCartIds = new LinkedHashSet<>(bulkCartRequestDto.getCartIds());
+            carts.forEach(cart -> missingCartIds.remove(cart.getCartId()));
+            return ResponseBuilder.success("Carts retrieved successfully",
+                    BulkCartsDto.builder().carts(carts).missingCartIds(new ArrayList<>(missingCartIds)).build());
+        } catch (RedisOperationException e) {
+            return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, REDIS_GENERAL_ERROR_MSG, List.of(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while retrieving the carts", List.of(e.getMessage()));
+        }
+    }
+
+    // One cart per line, written as soon as each lookup stage (cache, guest carts, database) resolves it
+    @PostMapping(value = "/bulk", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCartsByIds(@Valid @RequestBody BulkCartRequestDto bulkCartRequestDto) {
+        StreamingResponseBody body = outputStream -> this.cartService.streamCartsByIds(bulkCartRequestDto.getCartIds(), cart -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(cart));
+                outputStream.write('\n');
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Active carts for analytics, streamed from a database cursor; resume an interrupted export with after=<last cartId>
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportActiveCarts(@RequestParam(defaultValue = "") String after,
+                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date updatedBefore,
+                                                                   @RequestParam(required = false) Integer limit) {
+        StreamingResponseBody body = outputStream -> exportActiveCarts(outputStream, after, updatedBefore, limit, (cart, out) -> {
+            out.write(objectMapper.writeValueAsBytes(cart));
+            out.write('\n');
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Same export with one CSV row per cart item (empty product columns for a cart without items)
+    @GetMapping(value = "/export", produces = TEXT_CSV_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportActiveCartsAsCsv(@RequestParam(defaultValue = "") String after,
+                                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date updatedBefore,
+                                                                        @RequestParam(required = false) Integer limit) {
+        StreamingResponseBody body = outputStream -> {
+            outputStream.write("cart_id,user_id,updated_at,product_id,quantity,price\n".getBytes(StandardCharsets.UTF_8));
+            exportActiveCarts(outputStream, after, updatedBefore, limit, (cart, out) -> {
+                String cartColumns = csvField(cart.getCartId()) + "," + csvField(cart.getUserId()) + ","
+                        + cart.getUpdatedAt().toInstant() + ",";
+                if (cart.getCartItems().isEmpty()) {
+                    out.write((cartColumns + ",,\n").getBytes(StandardCharsets.UTF_8));
+                }
+                for (CartItemDto item : cart.getCartItems()) {
+                    out.write((cartColumns + csvField(item.getProductId()) + "," + item.getQuantity() + "," + item.getPrice() + "\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                }
+            });
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(TEXT_CSV_VALUE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"active-carts.csv\"")
+                .body(body);
+    }
+
+    @GetMapping("/guest")
+    public ResponseEntity<ResponseDto<CartDto>> getGuestCart(@RequestParam String cartId) {
         try {
-            CartDto updatedCart = cartService.updateCart(cartId, updateCartDto);
-            return ResponseBuilder.success("Successfully updated the cart", updatedCart);
+            CartDto cartDto = this.cartService.getCartFromRedis(cartId);
+            return ResponseBuilder.success("Cart retrieved successfully", cartDto);
         } catch (CartNotFoundException e) {
             return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
-        } catch (DuplicateRequestException e) {
-            return ResponseBuilder.error(HttpStatus.ACCEPTED, "Nothing new to update", List.of(e.getMessage()));
-        } catch (InvalidCartOperationException e) {
-            return ResponseBuilder.error(HttpStatus.BAD_REQUEST, "Invalid cart operation", List.of(e.getMessage()));
         } catch (Exception e) {
-            return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while updating cart", List.of(e.getMessage()));
+            return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while retrieving the cart", List.of(e.getMessage()));
+        }
+    }
+
+    @PatchMapping("/guest/items")
+    public ResponseEntity<ResponseDto<CartDto>> addItemsToGuestCart(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, @RequestParam String cartId, @Valid @RequestBody List<CartItemDto> cartItems) {
+        return idempotencyService.execute(idempotencyKey, "add-guest-items:" + cartId, cartItems, CART_RESPONSE_TYPE, () -> {
+            try {
+                CartDto updatedCart = cartService.addItemsToGuestCart(cartId, cartItems);
+                return ResponseBuilder.success("Successfully added items to cart", updatedCart);
+            } catch (CartNotFoundException e) {
+                return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
+            } catch (RedisOperationException e) {
+                return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, REDIS_GENERAL_ERROR_MSG, List.of(e.getMessage()));
+            } catch (Exception e) {
+                return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while adding items to the cart", List.of(e.getMessage()));
+            }
+        });
+    }
+
+    @PutMapping("/guest/items")
+    public ResponseEntity<ResponseDto<CartDto>> updateGuestCartItems(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, @RequestParam String cartId, @Valid @RequestBody List<UpdateCartItemDto> cartItems) {
+        return idempotencyService.execute(idempotencyKey, "update-guest-items:" + cartId, cartItems, CART_RESPONSE_TYPE, () -> {
+            try {
+                CartDto updatedCart = cartService.updateGuestCartItems(cartId, cartItems);
+                return ResponseBuilder.success("Successfully updated cart items", updatedCart);
+            } catch (CartNotFoundException e) {
+                return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
+            } catch (InvalidCartOperationException e) {
+                return ResponseBuilder.error(HttpStatus.BAD_REQUEST, "Invalid cart operation", List.of(e.getMessage()));
+            } catch (RedisOperationException e) {
+                return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, REDIS_GENERAL_ERROR_MSG, List.of(e.getMessage()));
+            } catch (Exception e) {
+                return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while updating items in the cart", List.of(e.getMessage()));
+            }
+        });
+    }
+
+    @PatchMapping("/items")
+    public ResponseEntity<ResponseDto<CartDto>> addItemsToCart(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, @RequestParam String cartId, @Valid @RequestBody List<CartItemDto> cartItems) {
+        return idempotencyService.execute(idempotencyKey, "add-items:" + cartId, cartItems, CART_RESPONSE_TYPE, () -> {
+            try {
+                CartDto updatedCart = cartService.addItemsToCart(cartId, cartItems);
+                return ResponseBuilder.success("Successfully added items to cart", updatedCart);
+            } catch (CartNotFoundException e) {
+                return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
+            } catch (InvalidCartOperationException e) {
+                return ResponseBuilder.error(HttpStatus.BAD_REQUEST, "Invalid cart operation", List.of(e.getMessage()));
+            } catch (CartConflictException e) {
+                return ResponseBuilder.error(HttpStatus.CONFLICT, CART_CONFLICT_MSG, List.of(e.getMessage()));
+            } catch (Exception e) {
+                return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while adding items to the cart", List.of(e.getMessage()));
+            }
+        });
+    }
+
+    // Large item uploads, read line by line from the request body instead of being bound to a list
+    @PostMapping(value = "/items/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseDto<CartItemImportDto>> importItems(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, @RequestParam String cartId, InputStream body) {
+        return importItems(idempotencyKey, cartId, MediaType.APPLICATION_NDJSON_VALUE, body,
+                upload -> CartItemImportReader.ndjson(upload, objectMapper));
+    }
+
+    @PostMapping(value = "/items/import", consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<ResponseDto<CartItemImportDto>> importItemsFromCsv(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, @RequestParam String cartId, InputStream body) {
+        return importItems(idempotencyKey, cartId, TEXT_CSV_VALUE, body, CartItemImportReader::csv);
+    }
+
+    @DeleteMapping
+    public ResponseEntity<ResponseDto<Void>> deleteCart(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, @RequestParam String cartId) {
+        return idempotencyService.execute(idempotencyKey, "delete-cart:" + cartId, null, VOID_RESPONSE_TYPE, () -> {
+            try {
+                this.cartService.deleteCart(cartId);
+                return ResponseBuilder.success("Cart deleted successfully", null);
+            } catch (CartNotFoundException e) {
+                return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
+            } catch (CartConflictException e) {
+                return ResponseBuilder.error(HttpStatus.CONFLICT, CART_CONFLICT_MSG, List.of(e.getMessage()));
+            } catch (Exception e) {
+                return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while deleting the cart", List.of(e.getMessage()));
+            }
+        });
+    }
+
+    @PutMapping
+    public ResponseEntity<ResponseDto<CartDto>> updateCart(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey, @RequestParam String cartId, @Valid @RequestBody UpdateCartDto updateCartDto) {
+        return idempotencyService.execute(idempotencyKey, "update-cart:" + cartId, updateCartDto, CART_RESPONSE_TYPE, () -> {
+            try {
+                CartDto updatedCart = cartService.updateCart(cartId, updateCartDto);
+                return ResponseBuilder.success("Successfully updated the cart", updatedCart);
+            } catch (CartNotFoundException e) {
+                return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
+            } catch (DuplicateRequestException e) {
+                return ResponseBuilder.error(HttpStatus.ACCEPTED, "Nothing new to update", List.of(e.getMessage()));
+            } catch (InvalidCartOperationException e) {
+                return ResponseBuilder.error(HttpStatus.BAD_REQUEST, "Invalid cart operation", List.of(e.getMessage()));
+            } catch (CartConflictException e) {
+                return ResponseBuilder.error(HttpStatus.CONFLICT, CART_CONFLICT_MSG, List.of(e.getMessage()));
+            } catch (Exception e) {
+                return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while updating cart", List.of(e.getMessage()));
+            }
+        });
+    }
+
+    private interface CartItemImportReaderFactory {
+        CartItemImportReader open(InputStream upload) throws IOException;
+    }
+
+    // The body is streamed, not buffered: the idempotency service fingerprints it while the import reads it
+    private ResponseEntity<ResponseDto<CartItemImportDto>> importItems(String idempotencyKey, String cartId, String contentType,
+                                                                      InputStream body, CartItemImportReaderFactory readerFactory) {
+        return idempotencyService.executeStreamed(idempotencyKey, "import-items:" + cartId, contentType, body, IMPORT_RESPONSE_TYPE, upload -> {
+            try (CartItemImportReader reader = readerFactory.open(upload)) {
+                CartItemImportDto result = cartService.importItems(cartId, reader);
+                if (!result.isComplete()) {
+                    // Still a 200: batches up to lastCommittedLine are in the cart, and the stored response must
+                    // replay for a retry with the same key instead of importing them again
+                    return ResponseBuilder.success("Import stopped after line " + result.getLastCommittedLine(), result);
+                }
+                return ResponseBuilder.success(result.getRejectedLines() == 0
+                        ? "Successfully imported items to cart"
+                        : "Imported items to cart, some lines were rejected", result);
+            } catch (CartNotFoundException e) {
+                return ResponseBuilder.error(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, List.of(e.getMessage()));
+            } catch (InvalidCartOperationException e) {
+                return ResponseBuilder.error(HttpStatus.BAD_REQUEST, "Invalid cart operation", List.of(e.getMessage()));
+            } catch (CartConflictException e) {
+                return ResponseBuilder.error(HttpStatus.CONFLICT, CART_CONFLICT_MSG, List.of(e.getMessage()));
+            } catch (Exception e) {
+                return ResponseBuilder.error(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while importing items to the cart", List.of(e.getMessage()));
+            }
+        });
+    }
+
+    private interface CartExportWriter {
+        void write(CartExportDto cart, OutputStream out) throws IOException;
+    }
+
+    private void exportActiveCarts(OutputStream outputStream, String after, Date updatedBefore, Integer limit,
+                                   CartExportWriter writer) throws IOException {
+        OutputStream out = new BufferedOutputStream(outputStream, 16 * 1024);
+        this.cartService.exportActiveCarts(after, updatedBefore == null ? new Date() : updatedBefore, limit, cart -> {
+            try {
+                writer.write(cart, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
         }
+        return value;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,89 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import reactor.core.publisher.Mono;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.ResponseDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.RedisOperationException;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.ReactiveGuestCartRepository;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Guest cart endpoints served asynchronously: the servlet thread is released as soon as the Redis call is issued, and
+ * the response is encoded to bytes on the Lettuce event loop when the reply arrives.
+ */
+@Component
+public class GuestCartHandler {
+
+    private static final String CART_NOT_FOUND_MSG = "Cart not found";
+    private static final String REDIS_GENERAL_ERROR_MSG = "Redis operation failed";
+
+    private final ReactiveGuestCartRepository guestCartRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public GuestCartHandler(ReactiveGuestCartRepository guestCartRepository, ObjectMapper objectMapper, Validator validator) {
+        this.guestCartRepository = guestCartRepository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    public ServerResponse createCart(ServerRequest request) throws ServletException, IOException {
+        CartDto cartDto = request.body(CartDto.class);
+        List<String> violations = validator.validate(cartDto).stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .toList();
+        if (!violations.isEmpty()) {
+            return respond(HttpStatus.BAD_REQUEST, "Invalid arguments, Validation failed", null, violations);
+        }
+        return ServerResponse.async(guestCartRepository.create(UUID.randomUUID().toString(), cartDto.getCartItems())
+                .map(cart -> respond(HttpStatus.OK, "Cart created successfully", cart, null))
+                .onErrorResume(RedisOperationException.class,
+                        e -> Mono.just(respond(HttpStatus.INTERNAL_SERVER_ERROR, REDIS_GENERAL_ERROR_MSG, null, List.of(e.getMessage())))));
+    }
+
+    public ServerResponse getCart(ServerRequest request) {
+        String cartId = request.param("cartId").orElse(null);
+        if (cartId == null) {
+            return respond(HttpStatus.BAD_REQUEST, "Invalid arguments, Validation failed", null, List.of("cartId is required"));
+        }
+        return ServerResponse.async(guestCartRepository.findById(cartId)
+                .map(cart -> respond(HttpStatus.OK, "Cart retrieved successfully", cart, null))
+                .defaultIfEmpty(respond(HttpStatus.NOT_FOUND, CART_NOT_FOUND_MSG, null, List.of("Guest cart not found with ID: " + cartId)))
+                .onErrorResume(RedisOperationException.class,
+                        e -> Mono.just(respond(HttpStatus.INTERNAL_SERVER_ERROR, REDIS_GENERAL_ERROR_MSG, null, List.of(e.getMessage())))));
+    }
+
+    public ServerResponse invalidBody(Throwable e, ServerRequest request) {
+        return respond(HttpStatus.BAD_REQUEST, "Invalid field", null, List.of(e.getMessage()));
+    }
+
+    private ServerResponse respond(HttpStatus status, String message, CartDto data, List<String> errors) {
+        ResponseDto<CartDto> body = ResponseDto.<CartDto>builder()
+                .status(status)
+                .message(message)
+                .data(data)
+                .errors(errors)
+                .build();
+        try {
+            return ServerResponse.status(status)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(objectMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotWritableException("Unable to encode response", e);
+        }
+    }
+}
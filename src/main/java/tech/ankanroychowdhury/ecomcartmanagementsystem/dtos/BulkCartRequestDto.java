@@ -0,0 +1,23 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Schema(hidden = true)
+public class BulkCartRequestDto implements Serializable {
+
+    @NotNull
+    @Size(message = "Between 1 and 500 cart IDs can be requested at a time", min = 1, max = 500)
+    transient List<@NotBlank String> cartIds;
+}
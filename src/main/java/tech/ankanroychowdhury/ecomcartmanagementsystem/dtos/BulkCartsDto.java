@@ -0,0 +1,18 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Schema(hidden = true)
+public class BulkCartsDto implements Serializable {
+    transient List<CartDto> carts;
+    List<String> missingCartIds;
+}
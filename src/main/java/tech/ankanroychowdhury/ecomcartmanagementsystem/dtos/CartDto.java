@@ -1,5 +1,7 @@
 package tech.ankanroychowdhury.ecomcartmanagementsystem.dtos;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -29,4 +31,16 @@ public class CartDto implements Serializable {
     @NotNull
     @Size(message = "Cart must have at least one item", min = 1)
     transient List<CartItemDto> cartItems;
+
+    // Read-only, computed by the server
+    CartTotalsDto totals;
+
+    // Only populated when explicitly requested
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    CartMetadataDto metadata;
+
+    // Last write-behind journal entry the items include; kept in the cache copy, never sent to clients
+    @JsonIgnore
+    @Schema(hidden = true)
+    String journalOffset;
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Change to a user cart, as published on the {@code cart:events} stream.
+ */
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Schema(hidden = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CartEventDto implements Serializable {
+
+    public enum Type {
+        CREATED, ITEMS_ADDED, UPDATED, MERGED, DELETED,
+        // The reaper moved the cart, deleted or abandoned, to the archive tables
+        ARCHIVED
+    }
+
+    Type type;
+    String cartId;
+    String userId;
+
+    // MERGED only: the guest cart that was folded into the user cart
+    String guestCartId;
+
+    // The whole cart after the change on CREATED and UPDATED, the quantities added on ITEMS_ADDED and MERGED;
+    // absent on DELETED and ARCHIVED
+    transient List<CartItemDto> items;
+
+    // Totals after the change; absent on DELETED and ARCHIVED
+    CartTotalsDto totals;
+
+    // Epoch millis
+    long occurredAt;
+}
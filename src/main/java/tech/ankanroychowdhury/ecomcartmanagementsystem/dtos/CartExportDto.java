@@ -0,0 +1,21 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Schema(hidden = true)
+public class CartExportDto implements Serializable {
+    String cartId;
+    String userId;
+    Date updatedAt;
+    transient List<CartItemDto> cartItems;
+}
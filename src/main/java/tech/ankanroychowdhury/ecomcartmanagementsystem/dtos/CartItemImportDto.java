@@ -0,0 +1,27 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Schema(hidden = true)
+public class CartItemImportDto implements Serializable {
+    String cartId;
+    long importedLines;
+    long rejectedLines;
+    // False when the import stopped early; lines after lastCommittedLine were not added and can be sent again
+    boolean complete;
+    // Last line of the upload whose batch was committed
+    long lastCommittedLine;
+    // The first rejected lines, up to cart.item-import.max-reported-errors
+    List<CartItemImportErrorDto> errors;
+    // Totals after the import
+    CartTotalsDto totals;
+}
@@ -0,0 +1,18 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.io.Serializable;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Schema(hidden = true)
+public class CartItemImportErrorDto implements Serializable {
+    // 1-based line in the upload, header included for CSV
+    long line;
+    String error;
+}
@@ -0,0 +1,21 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Schema(hidden = true)
+public class CartItemPageDto implements Serializable {
+    String cartId;
+    // In item ID order
+    transient List<CartItemDto> items;
+    // Pass as after= to get the next page; null on the last page
+    Long nextAfter;
+}
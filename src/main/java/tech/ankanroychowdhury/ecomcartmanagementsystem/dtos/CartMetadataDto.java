@@ -0,0 +1,23 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * DTO for {@link tech.ankanroychowdhury.ecomcartmanagementsystem.entities.CartMetadata}
+ */
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Schema(hidden = true)
+public class CartMetadataDto implements Serializable {
+    String deviceType;
+    String browser;
+    String operatingSystem;
+    String ipAddress;
+    String additionalInfo;
+}
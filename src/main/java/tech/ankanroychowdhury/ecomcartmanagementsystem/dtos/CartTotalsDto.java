@@ -0,0 +1,26 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.dtos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Schema(hidden = true)
+public class CartTotalsDto implements Serializable {
+    // Sum of item quantities
+    int itemCount;
+    // Sum of price x quantity, in cents
+    long subtotalMinor;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public BigDecimal getSubtotal() {
+        return BigDecimal.valueOf(subtotalMinor, 2);
+    }
+}
@@ -1,6 +1,7 @@
 package tech.ankanroychowdhury.ecomcartmanagementsystem.dtos;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
 import lombok.*;
 
 import java.io.Serializable;
@@ -14,5 +15,7 @@ import java.util.List;
 @Schema(hidden = true)
 public class UpdateCartDto implements Serializable {
     String userId;
+
+    @Valid
     transient List<UpdateCartItemDto> cartItems;
 }
@@ -18,9 +18,9 @@ import java.io.Serializable;
 public class UpdateCartItemDto implements Serializable {
     String productId;
 
-    @Min(message = "Minimum Quantity should be at least 1", value = 1)
+    // 0 removes the product from the cart
+    @Min(message = "Quantity should not be negative, use 0 to remove the item", value = 0)
     @Max(message = "You can add max of 5 products at a time", value = 5)
-    @Positive(message = "Quantity should not be lesser than 1")
     int quantity;
 
     @Min(message = "Minimum Price should be at least 0", value = 0)
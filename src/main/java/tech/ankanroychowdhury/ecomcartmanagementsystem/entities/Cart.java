@@ -29,13 +29,28 @@ public class Cart extends Auditable implements Serializable {
 
     private String userId;
 
-    @OneToMany(cascade = CascadeType.ALL, mappedBy = "cart")
+    // Items dropped from the list are deleted, which is how an update removes an item
+    @OneToMany(cascade = CascadeType.ALL, mappedBy = "cart", orphanRemoval = true)
     private List<CartItem> cartItems;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "metadata_id", referencedColumnName = "id")
     private CartMetadata metadata;
 
     @Column(nullable = false)
     private boolean active;
+
+    @Version
+    private Long version;
+
+    // Sum of item quantities and of price x quantity in cents, kept current by every item change
+    @Column(nullable = false)
+    private int itemCount;
+
+    @Column(nullable = false)
+    private long subtotalMinor;
+
+    // Last write-behind journal entry applied to the items; only ever written by the journal flusher
+    @Column(insertable = false, updatable = false)
+    private String journalOffset;
 }
@@ -12,12 +12,13 @@ import java.io.Serializable;
 @Entity
 @Getter
 @Setter
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, CartItemIdListener.class})
 @AllArgsConstructor
 @Schema(name = "CartItem", description = "Represents item in the cart")
 public class CartItem extends Auditable implements Serializable {
+    // Assigned by CartItemIdListener without a database round trip, so JDBC insert batching stays enabled
+    // (IDENTITY would disable it)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(nullable = false)
@@ -34,4 +35,8 @@ public class CartItem extends Auditable implements Serializable {
     @JoinColumn(name = "cart_id")
     @Schema(hidden = true)
     private Cart cart;
+
+    @Version
+    @Schema(hidden = true)
+    private Long version;
 }
@@ -0,0 +1,26 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.entities;
+
+import jakarta.persistence.PrePersist;
+import org.springframework.stereotype.Component;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.CartItemIdGenerator;
+
+/**
+ * Assigns cart item ids just before Hibernate persists them; Hibernate runs pre-persist callbacks before it reads
+ * an assigned identifier.
+ */
+@Component
+public class CartItemIdListener {
+
+    private final CartItemIdGenerator cartItemIdGenerator;
+
+    public CartItemIdListener(CartItemIdGenerator cartItemIdGenerator) {
+        this.cartItemIdGenerator = cartItemIdGenerator;
+    }
+
+    @PrePersist
+    public void assignId(CartItem cartItem) {
+        if (cartItem.getId() == null) {
+            cartItem.setId(cartItemIdGenerator.nextId());
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions;
+
+public class CartConflictException extends RuntimeException {
+    public CartConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
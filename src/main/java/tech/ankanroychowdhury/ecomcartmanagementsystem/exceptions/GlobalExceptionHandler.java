@@ -30,6 +30,11 @@ public class GlobalExceptionHandler {
         return ResponseBuilder.error(HttpStatus.ACCEPTED, "Nothing new to update", List.of(ex.getMessage()));
     }
 
+    @ExceptionHandler(CartConflictException.class)
+    public ResponseEntity<ResponseDto<Void>> handleCartConflictException(CartConflictException ex) {
+        return ResponseBuilder.error(HttpStatus.CONFLICT, "Cart was modified concurrently", List.of(ex.getMessage()));
+    }
+
     @ExceptionHandler(InvalidCartOperationException.class)
     public ResponseEntity<ResponseDto<Void>> handleInvalidCartOperationException(InvalidCartOperationException ex) {
         return ResponseBuilder.error(HttpStatus.BAD_REQUEST, "Invalid cart operation", List.of(ex.getMessage()));
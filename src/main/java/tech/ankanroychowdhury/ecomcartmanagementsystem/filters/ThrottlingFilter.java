@@ -1,24 +1,53 @@
 package tech.ankanroychowdhury.ecomcartmanagementsystem.filters;
 
-import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.AntPathMatcher;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.RateLimitProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.ratelimit.RateLimitBackend;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+@Slf4j
 public class ThrottlingFilter implements Filter {
 
-    private static final ConcurrentMap<String, Bucket> CACHE = new ConcurrentHashMap<>();
+    private static final String DEFAULT_ROUTE_ID = "default";
+    // Request attribute holding the caller's client key, for handlers that need to tell callers apart
+    public static final String CLIENT_KEY_ATTRIBUTE = "cart.rateLimit.clientKey";
 
-    private Bucket createNewBucket() {
-        return Bucket.builder()
-                .addLimit(limit -> limit.capacity(50).refillGreedy(50, Duration.ofMinutes(1)))
+    private final RateLimitBackend backend;
+    private final RateLimitProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<RouteLimit> routeLimits = new ArrayList<>();
+    private final RouteLimit defaultLimit;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ThrottlingFilter(RateLimitBackend backend, RateLimitProperties properties) {
+        this.backend = backend;
+        this.properties = properties;
+        this.defaultLimit = new RouteLimit(DEFAULT_ROUTE_ID, null, null, createConfiguration(properties.getDefaultLimit()));
+        List<RateLimitProperties.Route> routes = properties.getRoutes();
+        for (int i = 0; i < routes.size(); i++) {
+            RateLimitProperties.Route route = routes.get(i);
+            routeLimits.add(new RouteLimit("route" + i, route.getPattern(), route.getMethod(), createConfiguration(route)));
+        }
+    }
+
+    private BucketConfiguration createConfiguration(RateLimitProperties.Limit limit) {
+        return BucketConfiguration.builder()
+                .addLimit(bandwidth -> bandwidth.capacity(limit.getCapacity()).refillGreedy(limit.getCapacity(), limit.getRefillPeriod()))
                 .build();
     }
 
@@ -29,21 +58,70 @@ public class ThrottlingFilter implements Filter {
         HttpServletRequest request = (HttpServletRequest) servletRequest;
         HttpServletResponse response = (HttpServletResponse) servletResponse;
 
-        String clientIdentifier = getClientIp(request);
+        RouteLimit routeLimit = resolveRouteLimit(request);
+        String clientKey = getClientKey(request);
+        request.setAttribute(CLIENT_KEY_ATTRIBUTE, clientKey);
+        String bucketKey = routeLimit.id() + ":" + clientKey;
 
-        Bucket bucket = CACHE.computeIfAbsent(clientIdentifier, key -> createNewBucket());
+        ConsumptionProbe probe;
+        try {
+            probe = backend.tryConsume(bucketKey, routeLimit.configuration());
+        } catch (Exception e) {
+            // Fail open: an unavailable limiter backend must not take the whole API down with it
+            log.warn("Rate limit backend unavailable, allowing request", e);
+            allowed.increment();
+            filterChain.doFilter(servletRequest, servletResponse);
+            return;
+        }
 
-        if (bucket.tryConsume(1)) {
+        if (probe.isConsumed()) {
+            allowed.increment();
+            response.setHeader("X-Rate-Limit-Remaining", String.valueOf(probe.getRemainingTokens()));
             filterChain.doFilter(servletRequest, servletResponse);
         } else {
+            rejected.increment();
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill()));
             response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
             response.setContentType("text/plain");
             response.getWriter().write("Too many requests. Please try again later.");
         }
     }
 
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private RouteLimit resolveRouteLimit(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (RouteLimit routeLimit : routeLimits) {
+            if ((routeLimit.method() == null || routeLimit.method().equalsIgnoreCase(request.getMethod()))
+                    && pathMatcher.match(routeLimit.pattern(), path)) {
+                return routeLimit;
+            }
+        }
+        return defaultLimit;
+    }
+
+    private String getClientKey(HttpServletRequest request) {
+        if (properties.getClientKey() == RateLimitProperties.ClientKey.HEADER) {
+            String clientKey = request.getHeader(properties.getClientKeyHeader());
+            if (clientKey != null && !clientKey.isBlank()) {
+                return clientKey;
+            }
+        }
+        return getClientIp(request);
+    }
+
     private String getClientIp(HttpServletRequest request) {
         String xfHeader = request.getHeader("X-Forwarded-For");
         return xfHeader == null ? request.getRemoteAddr() : xfHeader.split(",")[0];
     }
+
+    private record RouteLimit(String id, String pattern, String method, BucketConfiguration configuration) {
+    }
 }
@@ -0,0 +1,35 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.jobs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.CartEventProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.services.CartEventPublisher;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "cart.events", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CartEventRelayJob {
+
+    private final CartEventPublisher cartEventPublisher;
+    private final CartEventProperties properties;
+
+    public CartEventRelayJob(CartEventPublisher cartEventPublisher, CartEventProperties properties) {
+        this.cartEventPublisher = cartEventPublisher;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${cart.events.relay-interval:PT0.1S}")
+    public void relay() {
+        try {
+            int relayed;
+            do {
+                relayed = cartEventPublisher.relay();
+            } while (relayed >= properties.getBatchSize());
+        } catch (RuntimeException e) {
+            // The batch stays in the outbox; the publisher backs off before the next attempt
+            log.warn("Relaying cart events failed", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.jobs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.WriteBehindProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.services.CartJournalService;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "cart.write-behind", name = "enabled", havingValue = "true")
+public class CartJournalFlushJob {
+
+    private final CartJournalService cartJournalService;
+    private final WriteBehindProperties properties;
+
+    public CartJournalFlushJob(CartJournalService cartJournalService, WriteBehindProperties properties) {
+        this.cartJournalService = cartJournalService;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${cart.write-behind.poll-interval:PT0.1S}")
+    public void flush() {
+        try {
+            // Keep going while batches come back full, so a backlog drains without waiting a poll interval per batch
+            int flushed;
+            do {
+                flushed = cartJournalService.flush();
+            } while (flushed >= properties.getBatchSize());
+        } catch (RuntimeException e) {
+            // Whatever wasn't applied stays unacknowledged and is claimed again once idle for claim-after
+            log.warn("Cart journal flush failed", e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.jobs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.services.CartReaperService;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "cart.reaper", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CartReaperJob {
+
+    private final CartReaperService cartReaperService;
+
+    public CartReaperJob(CartReaperService cartReaperService) {
+        this.cartReaperService = cartReaperService;
+    }
+
+    @Scheduled(fixedDelayString = "${cart.reaper.interval:PT5M}", initialDelayString = "${cart.reaper.interval:PT5M}")
+    public void reap() {
+        int reaped = cartReaperService.reap();
+        if (reaped > 0) {
+            log.info("Archived {} soft-deleted or stale carts", reaped);
+        }
+    }
+}
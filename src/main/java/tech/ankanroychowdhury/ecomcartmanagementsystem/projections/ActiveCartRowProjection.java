@@ -0,0 +1,16 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.projections;
+
+import java.util.Date;
+
+/**
+ * One row per cart item (or per empty cart) of the active cart export, in cart ID order.
+ */
+public record ActiveCartRowProjection(String cartId,
+                                      String userId,
+                                      Date updatedAt,
+                                      String journalOffset,
+                                      Long itemId,
+                                      String productId,
+                                      Integer quantity,
+                                      Double price) {
+}
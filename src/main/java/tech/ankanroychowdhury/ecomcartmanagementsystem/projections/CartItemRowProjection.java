@@ -0,0 +1,16 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.projections;
+
+/**
+ * Flat row of an active cart joined with one of its items, read without hydrating entities.
+ * Item columns are null when the cart has no items.
+ */
+public record CartItemRowProjection(String cartId,
+                                    String userId,
+                                    String journalOffset,
+                                    int itemCount,
+                                    long subtotalMinor,
+                                    Long itemId,
+                                    String productId,
+                                    Integer quantity,
+                                    Double price) {
+}
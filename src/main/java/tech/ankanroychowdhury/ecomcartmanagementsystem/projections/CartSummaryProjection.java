@@ -0,0 +1,11 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.projections;
+
+/**
+ * Cart row without its items: the header and running totals of an active cart.
+ */
+public record CartSummaryProjection(String cartId,
+                                    String userId,
+                                    int itemCount,
+                                    long subtotalMinor,
+                                    String journalOffset) {
+}
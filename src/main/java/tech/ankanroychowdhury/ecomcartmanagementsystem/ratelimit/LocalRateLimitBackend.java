@@ -0,0 +1,37 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.RateLimitProperties;
+
+/**
+ * Per-node buckets held in a bounded cache; buckets of idle clients expire so memory stays flat.
+ */
+public class LocalRateLimitBackend implements RateLimitBackend {
+
+    private final Cache<String, Bucket> buckets;
+
+    public LocalRateLimitBackend(RateLimitProperties.Local properties) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumBuckets())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(String key, BucketConfiguration configuration) {
+        Bucket bucket = buckets.get(key, k -> {
+            LocalBucketBuilder builder = Bucket.builder();
+            for (Bandwidth bandwidth : configuration.getBandwidths()) {
+                builder.addLimit(bandwidth);
+            }
+            return builder.build();
+        });
+        return bucket.tryConsumeAndReturnRemaining(1);
+    }
+}
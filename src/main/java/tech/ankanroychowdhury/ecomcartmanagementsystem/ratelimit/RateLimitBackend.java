@@ -0,0 +1,8 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.ratelimit;
+
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+
+public interface RateLimitBackend {
+    ConsumptionProbe tryConsume(String key, BucketConfiguration configuration);
+}
@@ -0,0 +1,24 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.ratelimit;
+
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+
+/**
+ * Cluster-wide buckets whose state lives in Redis, so every instance enforces the same limit.
+ */
+public class RedisRateLimitBackend implements RateLimitBackend {
+
+    private final ProxyManager<String> proxyManager;
+    private final String keyPrefix;
+
+    public RedisRateLimitBackend(ProxyManager<String> proxyManager, String keyPrefix) {
+        this.proxyManager = proxyManager;
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(String key, BucketConfiguration configuration) {
+        return proxyManager.getProxy(keyPrefix + key, () -> configuration).tryConsumeAndReturnRemaining(1);
+    }
+}
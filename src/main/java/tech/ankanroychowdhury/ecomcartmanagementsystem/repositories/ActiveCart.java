@@ -0,0 +1,12 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartTotalsDto;
+
+/**
+ * Active cart row with the columns item adds work from.
+ *
+ * @param journalOffset last write-behind journal entry applied to the cart, or null if none
+ * @param totals        totals as of the read
+ */
+public record ActiveCart(String cartId, String userId, String journalOffset, CartTotalsDto totals) {
+}
@@ -0,0 +1,9 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+public interface CartArchiveRepository {
+    List<ReapableCart> lockReapableCarts(boolean active, Date updatedBefore, int limit);
+    int archiveAndDelete(List<String> cartIds, Date archivedAt);
+}
@@ -0,0 +1,79 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Set-based archival of carts with plain SQL: a batch is copied and removed with a handful of statements instead of
+ * loading and deleting entities one by one. Both methods must run in the same transaction.
+ */
+@Repository
+public class CartArchiveRepositoryImpl implements CartArchiveRepository {
+
+    // Item writes don't touch the cart row, so recent item activity also keeps a cart alive.
+    // SKIP LOCKED passes over carts a request is currently writing instead of waiting for them
+    private static final String LOCK_REAPABLE_CARTS = """
+            SELECT c.cart_id, c.user_id FROM cart c
+            WHERE c.active = :active AND c.updated_at < :updatedBefore
+              AND NOT EXISTS (SELECT 1 FROM cart_item i WHERE i.cart_id = c.cart_id AND i.updated_at >= :updatedBefore)
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String ARCHIVE_ITEMS = """
+            INSERT INTO cart_item_archive (id, cart_id, product_id, quantity, price, created_at, updated_at)
+            SELECT id, cart_id, product_id, quantity, price, created_at, updated_at
+            FROM cart_item WHERE cart_id IN (:cartIds)
+            """;
+
+    private static final String ARCHIVE_CARTS = """
+            INSERT INTO cart_archive (cart_id, user_id, active, created_at, updated_at, archived_at,
+                                      device_type, browser, operating_system, ip_address, additional_info)
+            SELECT c.cart_id, c.user_id, c.active, c.created_at, c.updated_at, :archivedAt,
+                   m.device_type, m.browser, m.operating_system, m.ip_address, m.additional_info
+            FROM cart c LEFT JOIN cart_metadata m ON m.id = c.metadata_id
+            WHERE c.cart_id IN (:cartIds)
+            """;
+
+    private static final String FIND_METADATA_IDS = "SELECT metadata_id FROM cart WHERE cart_id IN (:cartIds) AND metadata_id IS NOT NULL";
+    private static final String DELETE_ITEMS = "DELETE FROM cart_item WHERE cart_id IN (:cartIds)";
+    private static final String DELETE_CARTS = "DELETE FROM cart WHERE cart_id IN (:cartIds)";
+    private static final String DELETE_METADATA = "DELETE FROM cart_metadata WHERE id IN (:metadataIds)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public CartArchiveRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<ReapableCart> lockReapableCarts(boolean active, Date updatedBefore, int limit) {
+        return jdbcTemplate.query(LOCK_REAPABLE_CARTS, new MapSqlParameterSource()
+                        .addValue("active", active)
+                        .addValue("updatedBefore", updatedBefore)
+                        .addValue("limit", limit),
+                (rs, rowNum) -> new ReapableCart(rs.getString("cart_id"), rs.getString("user_id")));
+    }
+
+    @Override
+    public int archiveAndDelete(List<String> cartIds, Date archivedAt) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cartIds", cartIds)
+                .addValue("archivedAt", archivedAt);
+        int archivedItems = jdbcTemplate.update(ARCHIVE_ITEMS, params);
+        jdbcTemplate.update(ARCHIVE_CARTS, params);
+        List<Long> metadataIds = jdbcTemplate.queryForList(FIND_METADATA_IDS, params, Long.class);
+
+        // Children first, then the carts, then the metadata rows the carts pointed at
+        jdbcTemplate.update(DELETE_ITEMS, params);
+        jdbcTemplate.update(DELETE_CARTS, params);
+        if (!metadataIds.isEmpty()) {
+            jdbcTemplate.update(DELETE_METADATA, new MapSqlParameterSource("metadataIds", metadataIds));
+        }
+        return archivedItems;
+    }
+}
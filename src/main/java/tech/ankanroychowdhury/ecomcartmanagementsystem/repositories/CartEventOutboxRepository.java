@@ -0,0 +1,14 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CartEventOutboxRepository {
+    // Joins the caller's transaction, so the event commits or rolls back with the cart change
+    void insert(String cartId, String type, String payload);
+
+    // Oldest events first, locked for the rest of the transaction; rows another relay holds are skipped
+    List<CartEventRecord> lockOldest(int limit);
+
+    void deleteByIds(Collection<Long> ids);
+}
@@ -0,0 +1,55 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class CartEventOutboxRepositoryImpl implements CartEventOutboxRepository {
+
+    private static final String INSERT_EVENT = """
+            INSERT INTO cart_event_outbox (cart_id, event_type, payload, created_at)
+            VALUES (:cartId, :type, :payload, :now)
+            """;
+
+    // No SKIP LOCKED: a relay that took over from a stalled one waits for its batch instead of overtaking it
+    private static final String LOCK_OLDEST = """
+            SELECT id, cart_id, event_type, payload FROM cart_event_outbox
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE
+            """;
+
+    private static final String DELETE_EVENTS = "DELETE FROM cart_event_outbox WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public CartEventOutboxRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insert(String cartId, String type, String payload) {
+        jdbcTemplate.update(INSERT_EVENT, Map.of("cartId", cartId, "type", type, "payload", payload, "now", new Date()));
+    }
+
+    @Override
+    public List<CartEventRecord> lockOldest(int limit) {
+        return jdbcTemplate.query(LOCK_OLDEST, Map.of("limit", limit), (rs, rowNum) -> new CartEventRecord(
+                rs.getLong("id"),
+                rs.getString("cart_id"),
+                rs.getString("event_type"),
+                rs.getString("payload")));
+    }
+
+    @Override
+    public void deleteByIds(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.update(DELETE_EVENTS, Map.of("ids", ids));
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+/**
+ * Cart event as stored in the outbox, with the event already encoded as JSON.
+ *
+ * @param id outbox row ID, sent along as {@code eventId} so consumers can drop redelivered events
+ */
+public record CartEventRecord(long id, String cartId, String type, String payload) {
+}
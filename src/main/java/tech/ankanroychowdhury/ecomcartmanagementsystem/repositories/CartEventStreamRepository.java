@@ -0,0 +1,8 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import java.util.List;
+
+public interface CartEventStreamRepository {
+    // Appends the events in order, in one round trip
+    void append(List<CartEventRecord> events);
+}
@@ -0,0 +1,81 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.CartEventProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.RedisOperationException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cart events go to one Redis Stream, {@code cart:events}. Each entry carries {@code eventId}, {@code type} and
+ * {@code cartId} as plain fields, so consumers can route and deduplicate without parsing, and the whole event as JSON
+ * in {@code event}.
+ */
+@Repository
+@Timed("cart.events.redis")
+public class CartEventStreamRepositoryImpl implements CartEventStreamRepository {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CartEventProperties properties;
+    private volatile boolean groupsCreated;
+
+    public CartEventStreamRepositoryImpl(StringRedisTemplate stringRedisTemplate, CartEventProperties properties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public void append(List<CartEventRecord> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        ensureConsumerGroups();
+        String streamKey = properties.getStreamKey();
+        XAddOptions options = XAddOptions.maxlen(properties.getMaxLength()).approximateTrimming(true);
+        List<Map<String, String>> entries = events.stream().map(this::toFields).toList();
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                entries.forEach(fields -> stringConnection.xAdd(StreamRecords.string(fields).withStreamKey(streamKey), options));
+                return null;
+            });
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error publishing cart events", e);
+        }
+    }
+
+    private void ensureConsumerGroups() {
+        if (groupsCreated) {
+            return;
+        }
+        for (String group : properties.getConsumerGroups()) {
+            try {
+                // Starts at the end: a new group sees events from now on, not the retained history
+                stringRedisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands().xGroupCreate(
+                        properties.getStreamKey().getBytes(), group, ReadOffset.latest(), true));
+            } catch (DataAccessException e) {
+                if (!String.valueOf(e.getMostSpecificCause().getMessage()).contains("BUSYGROUP")) {
+                    throw new RedisOperationException("Error creating cart event consumer group " + group, e);
+                }
+            }
+        }
+        groupsCreated = true;
+    }
+
+    private Map<String, String> toFields(CartEventRecord event) {
+        return Map.of(
+                "eventId", String.valueOf(event.id()),
+                "type", event.type(),
+                "cartId", event.cartId(),
+                "event", event.payload());
+    }
+}
@@ -0,0 +1,18 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+
+import java.util.Collection;
+
+public interface CartItemDeltaRepository {
+    // Plain read, no lock; null if there is no such cart
+    ActiveCart findActiveCart(String cartId);
+
+    // Adds each item's quantity to the product's line, creating lines the cart doesn't have yet, and moves the cart
+    // totals by the difference; returns the cart after the change. Items must be one per product.
+    // Returns null when the cart is not active, after lines may already have changed: the caller must roll back.
+    ActiveCart addItems(String cartId, Collection<CartItemDto> items);
+
+    // Moves the journal offset only if it is still expectedOffset; false if another flush moved it first
+    boolean advanceJournalOffset(String cartId, String expectedOffset, String journalOffset);
+}
@@ -0,0 +1,175 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartTotalsDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.CartItemIdGenerator;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.CartTotals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Item quantity changes applied in the database instead of read-modify-write on the loaded cart, so concurrent adds
+ * to the same cart don't overwrite each other. Relies on the unique (cart_id, product_id) index.
+ * <p>
+ * Nothing locks the cart up front. Only the lines being incremented are locked, with exact-match reads on the unique
+ * index, so the totals move by the true difference. Adds of different products to one cart run side by side. The
+ * cart row is locked only from the totals update, which is the last statement, until commit. A new line that
+ * another add inserted first fails on the unique index and the add is retried. Increments and inserts go out as
+ * two JDBC batches, so a large add (an item import batch) costs a fixed number of round trips.
+ */
+@Repository
+public class CartItemDeltaRepositoryImpl implements CartItemDeltaRepository {
+
+    private static final String FIND_ACTIVE_CART = """
+            SELECT cart_id, user_id, journal_offset, item_count, subtotal_minor
+            FROM cart WHERE cart_id = :cartId AND active = TRUE
+            """;
+
+    private static final String FIND_PRODUCT_IDS = """
+            SELECT product_id FROM cart_item WHERE cart_id = :cartId AND product_id IN (:productIds)
+            """;
+
+    // Only lines known to exist: a lock on a missing key would take a gap lock, which deadlocks concurrent inserts
+    private static final String LOCK_LINES = """
+            SELECT product_id, quantity, price FROM cart_item WHERE cart_id = :cartId AND product_id IN (:productIds)
+            ORDER BY product_id
+            FOR UPDATE
+            """;
+
+    // Bumps the version as well, so a concurrent whole-cart update that read the old row fails its version check
+    private static final String INCREMENT_QUANTITY = """
+            UPDATE cart_item
+            SET quantity = quantity + :quantity, price = :price, version = version + 1, updated_at = :now
+            WHERE cart_id = :cartId AND product_id = :productId
+            """;
+
+    private static final String INSERT_ITEM = """
+            INSERT INTO cart_item (id, cart_id, product_id, quantity, price, version, created_at, updated_at)
+            VALUES (:id, :cartId, :productId, :quantity, :price, 0, :now, :now)
+            """;
+
+    // The cart version moves too, so a whole-cart update holding the old totals is rejected and retried. updated_at
+    // moves as on any other cart write, so a cart still being filled is never taken for an abandoned one
+    private static final String ADD_TO_TOTALS = """
+            UPDATE cart
+            SET item_count = item_count + :itemCount, subtotal_minor = subtotal_minor + :subtotalMinor,
+                version = version + 1, updated_at = :now
+            WHERE cart_id = :cartId AND active = TRUE
+            """;
+
+    private static final String ADVANCE_JOURNAL_OFFSET = """
+            UPDATE cart SET journal_offset = :journalOffset WHERE cart_id = :cartId AND journal_offset = :expectedOffset
+            """;
+
+    private static final String START_JOURNAL_OFFSET = """
+            UPDATE cart SET journal_offset = :journalOffset WHERE cart_id = :cartId AND journal_offset IS NULL
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CartItemIdGenerator cartItemIdGenerator;
+
+    public CartItemDeltaRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate, CartItemIdGenerator cartItemIdGenerator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cartItemIdGenerator = cartItemIdGenerator;
+    }
+
+    @Override
+    public ActiveCart findActiveCart(String cartId) {
+        List<ActiveCart> carts = jdbcTemplate.query(FIND_ACTIVE_CART, Map.of("cartId", cartId), (rs, rowNum) -> new ActiveCart(
+                rs.getString("cart_id"),
+                rs.getString("user_id"),
+                rs.getString("journal_offset"),
+                new CartTotalsDto(rs.getInt("item_count"), rs.getLong("subtotal_minor"))));
+        return carts.isEmpty() ? null : carts.get(0);
+    }
+
+    @Override
+    public ActiveCart addItems(String cartId, Collection<CartItemDto> items) {
+        if (items.isEmpty()) {
+            return findActiveCart(cartId);
+        }
+        Map<String, CartItemDto> lines = lockLines(cartId, items.stream().map(CartItemDto::getProductId).toList());
+
+        int itemCount = 0;
+        long subtotal = 0;
+        Date now = new Date();
+        List<MapSqlParameterSource> increments = new ArrayList<>();
+        List<MapSqlParameterSource> inserts = new ArrayList<>();
+        for (CartItemDto item : items) {
+            CartItemDto line = lines.get(item.getProductId());
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("cartId", cartId)
+                    .addValue("productId", item.getProductId())
+                    .addValue("quantity", item.getQuantity())
+                    .addValue("price", item.getPrice())
+                    .addValue("now", now);
+            if (line != null) {
+                increments.add(params);
+                subtotal += CartTotals.lineTotal(line.getQuantity() + item.getQuantity(), item.getPrice())
+                        - CartTotals.lineTotal(line.getQuantity(), line.getPrice());
+            } else {
+                inserts.add(params.addValue("id", cartItemIdGenerator.nextId()));
+                subtotal += CartTotals.lineTotal(item.getQuantity(), item.getPrice());
+            }
+            itemCount += item.getQuantity();
+        }
+        if (!increments.isEmpty()) {
+            jdbcTemplate.batchUpdate(INCREMENT_QUANTITY, increments.toArray(MapSqlParameterSource[]::new));
+        }
+        if (!inserts.isEmpty()) {
+            insertItems(inserts);
+        }
+        if (jdbcTemplate.update(ADD_TO_TOTALS,
+                Map.of("cartId", cartId, "itemCount", itemCount, "subtotalMinor", subtotal, "now", now)) == 0) {
+            return null;
+        }
+        // The update read the latest committed totals and this transaction now holds the row, so this is exact
+        return findActiveCart(cartId);
+    }
+
+    @Override
+    public boolean advanceJournalOffset(String cartId, String expectedOffset, String journalOffset) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cartId", cartId)
+                .addValue("expectedOffset", expectedOffset)
+                .addValue("journalOffset", journalOffset);
+        return jdbcTemplate.update(expectedOffset == null ? START_JOURNAL_OFFSET : ADVANCE_JOURNAL_OFFSET, params) == 1;
+    }
+
+    private Map<String, CartItemDto> lockLines(String cartId, List<String> productIds) {
+        List<String> existing = jdbcTemplate.queryForList(FIND_PRODUCT_IDS,
+                Map.of("cartId", cartId, "productIds", productIds), String.class);
+        Map<String, CartItemDto> lines = new HashMap<>();
+        if (existing.isEmpty()) {
+            return lines;
+        }
+        // A line removed in between simply doesn't come back and is inserted again
+        jdbcTemplate.query(LOCK_LINES, Map.of("cartId", cartId, "productIds", existing), rs -> {
+            lines.put(rs.getString("product_id"), CartItemDto.builder()
+                    .quantity(rs.getInt("quantity"))
+                    .price(rs.getDouble("price"))
+                    .build());
+        });
+        return lines;
+    }
+
+    private void insertItems(List<MapSqlParameterSource> inserts) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_ITEM, inserts.toArray(MapSqlParameterSource[]::new));
+        } catch (DuplicateKeyException e) {
+            // Another add or a whole-cart update created the line after it was looked up; the totals computed above
+            // no longer hold
+            throw new ConcurrencyFailureException("Cart item was created concurrently", e);
+        }
+    }
+}
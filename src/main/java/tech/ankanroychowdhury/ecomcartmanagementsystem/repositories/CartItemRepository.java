@@ -1,9 +1,36 @@
 package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.CartItem;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+
+    // Keyset page read from the cart_id index, whose entries end with the primary key: the cost of a page doesn't grow
+    // with how far into the cart it is
+    @Query("""
+            select new tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto(
+                i.id, i.productId, i.quantity, i.price)
+            from CartItem i
+            where i.cart.cartId = :cartId and i.id > :afterItemId
+            order by i.id
+            """)
+    List<CartItemDto> findItemPage(@Param("cartId") String cartId, @Param("afterItemId") long afterItemId, Limit limit);
+
+    // The lines of a few products, read through uk_cart_item_cart_id_product_id
+    @Query("""
+            select new tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto(
+                i.id, i.productId, i.quantity, i.price)
+            from CartItem i
+            where i.cart.cartId = :cartId and i.productId in :productIds
+            """)
+    List<CartItemDto> findItemsByProductIds(@Param("cartId") String cartId, @Param("productIds") Collection<String> productIds);
 }
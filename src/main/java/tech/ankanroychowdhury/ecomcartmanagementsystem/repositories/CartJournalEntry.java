@@ -0,0 +1,22 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Item add recorded in the write-behind journal. The ID is the Redis Stream entry ID ({@code <millis>-<sequence>}),
+ * which orders entries and is what a cart's journal offset refers to.
+ */
+public record CartJournalEntry(String id, String cartId, List<CartItemDto> items) {
+
+    public static final Comparator<String> ID_ORDER = Comparator
+            .comparingLong((String id) -> Long.parseLong(id.substring(0, id.indexOf('-'))))
+            .thenComparingLong(id -> Long.parseLong(id.substring(id.indexOf('-') + 1)));
+
+    // True when the entry comes after the offset, i.e. it is not yet part of a cart at that offset
+    public boolean isAfter(String offset) {
+        return offset == null || offset.isEmpty() || ID_ORDER.compare(id, offset) > 0;
+    }
+}
@@ -0,0 +1,34 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface CartJournalRepository {
+    // Appends to the journal and to the cart's pending entries in one step; returns the entry ID
+    String append(String cartId, List<CartItemDto> items);
+
+    // Entries of the cart that are not flushed yet, oldest first
+    List<CartJournalEntry> findPending(String cartId);
+
+    // Same for several carts in one round trip, keyed by cart ID in the order given
+    Map<String, List<CartJournalEntry>> findPending(Collection<String> cartIds);
+
+    // Entries nobody in the consumer group has read yet
+    List<CartJournalEntry> readNew(String consumer, int count);
+
+    // Entries read but left unacknowledged for at least minIdle, now owned by the given consumer
+    List<CartJournalEntry> claimStale(String consumer, Duration minIdle, int count);
+
+    // Drops flushed entries from the cart's pending entries and from the journal
+    void remove(Collection<CartJournalEntry> entries);
+
+    // Counts one more failed attempt to apply the entry; returns the attempts so far
+    long recordFailedAttempt(CartJournalEntry entry);
+
+    // Moves the entry to the dead-letter stream with the error, and drops it like a flushed one
+    void deadLetter(CartJournalEntry entry, String error);
+}
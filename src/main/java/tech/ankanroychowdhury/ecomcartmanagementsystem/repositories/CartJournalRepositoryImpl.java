@@ -0,0 +1,264 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.WriteBehindProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.RedisOperationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-behind journal kept in Redis. Every entry lives in the stream {@code cart:journal}, which the flushers consume
+ * through a consumer group, and in the hash {@code cart:journal:pending:<cartId>} (entry ID to items), which is what
+ * reads overlay on the last flushed cart. Both are written by one script and only removed once the entry is in MySQL,
+ * so the stream is never trimmed by length: an entry that hasn't been flushed is never dropped. An entry that keeps
+ * failing is moved to {@code cart:journal:dead-letter} instead; {@code cart:journal:attempts} counts the failures.
+ */
+@Repository
+@Timed("cart.journal.redis")
+public class CartJournalRepositoryImpl implements CartJournalRepository {
+
+    public static final String PENDING_KEY_PREFIX = "cart:journal:pending:";
+    public static final String ATTEMPTS_KEY = "cart:journal:attempts";
+
+    private static final String CART_ID_FIELD = "cartId";
+    private static final String ITEMS_FIELD = "items";
+    private static final TypeReference<List<CartItemDto>> ITEMS_TYPE = new TypeReference<>() {
+    };
+
+    // KEYS: journal stream, cart's pending hash. ARGV: cartId, items JSON. Returns the entry ID.
+    private static final RedisScript<String> APPEND_SCRIPT = new DefaultRedisScript<>("""
+            local id = redis.call('XADD', KEYS[1], '*', 'cartId', ARGV[1], 'items', ARGV[2])
+            redis.call('HSET', KEYS[2], id, ARGV[2])
+            return id
+            """, String.class);
+
+    // KEYS: journal stream, cart's pending hash, attempts hash, dead-letter stream. ARGV: entry ID, consumer group,
+    // cartId, items JSON, error. Adds to the dead-letter stream and drops the entry as remove() does, in one step.
+    private static final RedisScript<Long> DEAD_LETTER_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('XADD', KEYS[4], '*', 'entryId', ARGV[1], 'cartId', ARGV[3], 'items', ARGV[4], 'error', ARGV[5])
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            redis.call('HDEL', KEYS[3], ARGV[1])
+            redis.call('XACK', KEYS[1], ARGV[2], ARGV[1])
+            return redis.call('XDEL', KEYS[1], ARGV[1])
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final WriteBehindProperties properties;
+    private volatile boolean groupCreated;
+
+    public CartJournalRepositoryImpl(StringRedisTemplate stringRedisTemplate, ObjectMapper objectMapper,
+                                     WriteBehindProperties properties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    @Override
+    public String append(String cartId, List<CartItemDto> items) {
+        try {
+            return stringRedisTemplate.execute(APPEND_SCRIPT,
+                    List.of(properties.getStreamKey(), generatePendingKey(cartId)), cartId, writeItems(items));
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error appending to cart journal", e);
+        }
+    }
+
+    @Override
+    public List<CartJournalEntry> findPending(String cartId) {
+        Map<String, String> pending;
+        try {
+            pending = stringRedisTemplate.<String, String>opsForHash().entries(generatePendingKey(cartId));
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error reading cart journal", e);
+        }
+        return toPendingEntries(cartId, pending);
+    }
+
+    @Override
+    public Map<String, List<CartJournalEntry>> findPending(Collection<String> cartIds) {
+        List<String> ids = List.copyOf(cartIds);
+        List<Object> replies;
+        try {
+            replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                ids.forEach(cartId -> stringConnection.hGetAll(generatePendingKey(cartId)));
+                return null;
+            });
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error reading cart journal", e);
+        }
+        Map<String, List<CartJournalEntry>> pending = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            pending.put(ids.get(i), toPendingEntries(ids.get(i), (Map<?, ?>) replies.get(i)));
+        }
+        return pending;
+    }
+
+    @Override
+    public List<CartJournalEntry> readNew(String consumer, int count) {
+        ensureConsumerGroup();
+        try {
+            return toEntries(readGroup(Consumer.from(properties.getConsumerGroup(), consumer), count));
+        } catch (DataAccessException e) {
+            // The stream may have been removed (e.g. a flushed Redis); recreate the group on the next poll
+            groupCreated = false;
+            throw new RedisOperationException("Error reading cart journal", e);
+        }
+    }
+
+    @Override
+    public List<CartJournalEntry> claimStale(String consumer, Duration minIdle, int count) {
+        ensureConsumerGroup();
+        try {
+            PendingMessages pending = stringRedisTemplate.opsForStream()
+                    .pending(properties.getStreamKey(), properties.getConsumerGroup(), Range.unbounded(), count);
+            RecordId[] stale = pending.stream()
+                    .filter(message -> message.getElapsedTimeSinceLastDelivery().compareTo(minIdle) >= 0)
+                    .map(PendingMessage::getId)
+                    .toArray(RecordId[]::new);
+            if (stale.length == 0) {
+                return List.of();
+            }
+            // XCLAIM re-checks the idle time, so two flushers can't both take over the same entry
+            return toEntries(stringRedisTemplate.opsForStream().claim(
+                    properties.getStreamKey(), properties.getConsumerGroup(), consumer, minIdle, stale));
+        } catch (DataAccessException e) {
+            groupCreated = false;
+            throw new RedisOperationException("Error claiming cart journal entries", e);
+        }
+    }
+
+    @Override
+    public void remove(Collection<CartJournalEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        String streamKey = properties.getStreamKey();
+        String group = properties.getConsumerGroup();
+        String[] ids = entries.stream().map(CartJournalEntry::id).toArray(String[]::new);
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                entries.forEach(entry -> stringConnection.hDel(generatePendingKey(entry.cartId()), entry.id()));
+                stringConnection.hDel(ATTEMPTS_KEY, ids);
+                stringConnection.xAck(streamKey, group, ids);
+                stringConnection.xDel(streamKey, ids);
+                return null;
+            });
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error removing cart journal entries", e);
+        }
+    }
+
+    @Override
+    public long recordFailedAttempt(CartJournalEntry entry) {
+        try {
+            Long attempts = stringRedisTemplate.opsForHash().increment(ATTEMPTS_KEY, entry.id(), 1);
+            return attempts == null ? 1 : attempts;
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error counting a failed cart journal entry", e);
+        }
+    }
+
+    @Override
+    public void deadLetter(CartJournalEntry entry, String error) {
+        try {
+            stringRedisTemplate.execute(DEAD_LETTER_SCRIPT,
+                    List.of(properties.getStreamKey(), generatePendingKey(entry.cartId()), ATTEMPTS_KEY,
+                            properties.getDeadLetterStreamKey()),
+                    entry.id(), properties.getConsumerGroup(), entry.cartId(), writeItems(entry.items()),
+                    String.valueOf(error));
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error dead-lettering a cart journal entry", e);
+        }
+    }
+
+    public static String generatePendingKey(String cartId) {
+        return PENDING_KEY_PREFIX + cartId;
+    }
+
+    private void ensureConsumerGroup() {
+        if (groupCreated) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands().xGroupCreate(
+                    properties.getStreamKey().getBytes(), properties.getConsumerGroup(), ReadOffset.from("0"), true));
+        } catch (DataAccessException e) {
+            if (!String.valueOf(e.getMostSpecificCause().getMessage()).contains("BUSYGROUP")) {
+                throw new RedisOperationException("Error creating cart journal consumer group", e);
+            }
+        }
+        groupCreated = true;
+    }
+
+    // The only generic varargs call in here: a single typed offset, so the array javac creates for it is safe
+    @SuppressWarnings("unchecked")
+    private List<MapRecord<String, Object, Object>> readGroup(Consumer consumer, int count) {
+        return stringRedisTemplate.opsForStream().read(consumer, StreamReadOptions.empty().count(count),
+                StreamOffset.create(properties.getStreamKey(), ReadOffset.lastConsumed()));
+    }
+
+    private List<CartJournalEntry> toPendingEntries(String cartId, Map<?, ?> pending) {
+        List<CartJournalEntry> entries = new ArrayList<>(pending.size());
+        pending.forEach((id, items) -> entries.add(new CartJournalEntry((String) id, cartId, readItems((String) items))));
+        entries.sort(Comparator.comparing(CartJournalEntry::id, CartJournalEntry.ID_ORDER));
+        return entries;
+    }
+
+    private List<CartJournalEntry> toEntries(List<MapRecord<String, Object, Object>> records) {
+        if (records == null) {
+            return List.of();
+        }
+        List<CartJournalEntry> entries = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            Map<Object, Object> value = record.getValue();
+            entries.add(new CartJournalEntry(record.getId().getValue(), (String) value.get(CART_ID_FIELD),
+                    readItems((String) value.get(ITEMS_FIELD))));
+        }
+        return entries;
+    }
+
+    private String writeItems(List<CartItemDto> items) {
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new RedisOperationException("Error encoding cart journal entry", e);
+        }
+    }
+
+    private List<CartItemDto> readItems(String items) {
+        try {
+            return objectMapper.readValue(items, ITEMS_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new RedisOperationException("Error decoding cart journal entry", e);
+        }
+    }
+}
@@ -1,10 +1,86 @@
 package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.Cart;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.projections.ActiveCartRowProjection;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.projections.CartItemRowProjection;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.projections.CartSummaryProjection;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
+
+    // Fetches the items in the same statement so mutations don't trigger a lazy load
+    @EntityGraph(attributePaths = "cartItems")
     Cart findCartByCartIdAndActiveIsTrue(String cartId);
+
+    Cart findFirstByUserIdAndActiveIsTrueOrderByUpdatedAtDesc(String userId);
+
+    // Covered by idx_cart_user_id_active, so the newest active cart of a user is found without touching the table
+    @Query("""
+            select c.cartId from Cart c
+            where c.userId = :userId and c.active = true
+            order by c.updatedAt desc
+            limit 1
+            """)
+    String findActiveCartIdByUserId(@Param("userId") String userId);
+
+    @EntityGraph(attributePaths = {"cartItems", "metadata"})
+    Cart findCartWithMetadataByCartIdAndActiveIsTrue(String cartId);
+
+    // Read-only view of a cart and its items as flat rows, bypassing entity hydration and the persistence context
+    @Query("""
+            select new tech.ankanroychowdhury.ecomcartmanagementsystem.projections.CartItemRowProjection(
+                c.cartId, c.userId, c.journalOffset, c.itemCount, c.subtotalMinor, i.id, i.productId, i.quantity, i.price)
+            from Cart c left join c.cartItems i
+            where c.cartId = :cartId and c.active = true
+            order by i.id
+            """)
+    List<CartItemRowProjection> findCartRowsByCartId(@Param("cartId") String cartId);
+
+    // The cart row alone, for carts too large to load whole
+    @Query("""
+            select new tech.ankanroychowdhury.ecomcartmanagementsystem.projections.CartSummaryProjection(
+                c.cartId, c.userId, c.itemCount, c.subtotalMinor, c.journalOffset)
+            from Cart c
+            where c.cartId = :cartId and c.active = true
+            """)
+    CartSummaryProjection findCartSummaryByCartId(@Param("cartId") String cartId);
+
+    // Same flat rows for many carts in one statement, grouped by cart
+    @Query("""
+            select new tech.ankanroychowdhury.ecomcartmanagementsystem.projections.CartItemRowProjection(
+                c.cartId, c.userId, c.journalOffset, c.itemCount, c.subtotalMinor, i.id, i.productId, i.quantity, i.price)
+            from Cart c left join c.cartItems i
+            where c.cartId in :cartIds and c.active = true
+            order by c.cartId, i.id
+            """)
+    List<CartItemRowProjection> findCartRowsByCartIdIn(@Param("cartIds") Collection<String> cartIds);
+
+    // Forward-only cursor over active carts in primary key order, so an export can resume after the last cart it saw.
+    // Must be consumed inside a transaction and closed.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new tech.ankanroychowdhury.ecomcartmanagementsystem.projections.ActiveCartRowProjection(
+                c.cartId, c.userId, c.updatedAt, c.journalOffset, i.id, i.productId, i.quantity, i.price)
+            from Cart c left join c.cartItems i
+            where c.active = true and c.cartId > :afterCartId and c.updatedAt < :updatedBefore
+            order by c.cartId, i.id
+            """)
+    Stream<ActiveCartRowProjection> streamActiveCartRows(@Param("afterCartId") String afterCartId,
+                                                         @Param("updatedBefore") Date updatedBefore);
 }
@@ -0,0 +1,20 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+
+/**
+ * Outcome of atomically claiming a guest cart for a merge.
+ *
+ * @param cart       the guest cart contents, present only when {@code status} is {@link Status#CLAIMED}
+ * @param mergedInto the user the guest cart was already merged into, present only when {@code status} is {@link Status#MERGED}
+ */
+public record GuestCartClaim(Status status, CartDto cart, String mergedInto) {
+
+    public enum Status {
+        CLAIMED,
+        MERGED,
+        // Another merge of this guest cart, or into this user, is running
+        IN_PROGRESS,
+        MISSING
+    }
+}
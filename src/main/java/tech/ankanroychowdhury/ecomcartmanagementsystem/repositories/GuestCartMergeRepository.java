@@ -0,0 +1,14 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import java.util.Date;
+
+public interface GuestCartMergeRepository {
+    // The user the guest cart was merged into, or null if it never was
+    String findUserIdByGuestCartId(String guestCartId);
+
+    // Joins the caller's transaction, so the record commits or rolls back with the merge
+    void insert(String guestCartId, String userId);
+
+    // Removes up to limit records older than mergedBefore; returns how many were removed
+    int deleteMergedBefore(Date mergedBefore, int limit);
+}
@@ -0,0 +1,42 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class GuestCartMergeRepositoryImpl implements GuestCartMergeRepository {
+
+    private static final String FIND_USER_ID = "SELECT user_id FROM guest_cart_merge WHERE guest_cart_id = :guestCartId";
+
+    private static final String INSERT_MERGE = """
+            INSERT INTO guest_cart_merge (guest_cart_id, user_id, merged_at) VALUES (:guestCartId, :userId, :now)
+            """;
+
+    private static final String DELETE_MERGED_BEFORE = "DELETE FROM guest_cart_merge WHERE merged_at < :mergedBefore LIMIT :limit";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public GuestCartMergeRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public String findUserIdByGuestCartId(String guestCartId) {
+        List<String> userIds = jdbcTemplate.queryForList(FIND_USER_ID, Map.of("guestCartId", guestCartId), String.class);
+        return userIds.isEmpty() ? null : userIds.get(0);
+    }
+
+    @Override
+    public void insert(String guestCartId, String userId) {
+        jdbcTemplate.update(INSERT_MERGE, Map.of("guestCartId", guestCartId, "userId", userId, "now", new Date()));
+    }
+
+    @Override
+    public int deleteMergedBefore(Date mergedBefore, int limit) {
+        return jdbcTemplate.update(DELETE_MERGED_BEFORE, Map.of("mergedBefore", mergedBefore, "limit", limit));
+    }
+}
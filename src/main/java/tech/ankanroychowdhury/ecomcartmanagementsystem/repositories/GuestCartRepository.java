@@ -0,0 +1,24 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface GuestCartRepository {
+    CartDto create(String cartId, List<CartItemDto> cartItems);
+    Optional<CartDto> findById(String cartId);
+    Map<String, CartDto> findAllById(Collection<String> cartIds);
+    Optional<CartDto> addItems(String cartId, List<CartItemDto> cartItems);
+    // Replaces the quantity and price of each product; a quantity of 0 removes it
+    Optional<CartDto> setItems(String cartId, List<CartItemDto> cartItems);
+    void deleteById(String cartId);
+    // Moves the guest cart aside, where guest writes no longer reach it, for one merge at a time per guest cart and
+    // per user. The claim is finished with completeClaim() once the merge has committed, or undone with releaseClaim().
+    GuestCartClaim claimForMerge(String cartId, String userId);
+    void completeClaim(String cartId, String userId);
+    void releaseClaim(String cartId, String userId);
+}
@@ -0,0 +1,317 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.GuestCartProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.RedisOperationException;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.CartTotals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stores each guest cart as a Redis hash under {@code cart:guest:<cartId>} with two fields per product,
+ * {@code qty:<productId>} and {@code price:<productId>}, so item changes are applied in place (HINCRBY for adds,
+ * HSET or HDEL for set quantities) instead of rewriting the whole cart.
+ */
+@Repository
+@Timed("cart.guest.redis")
+public class GuestCartRepositoryImpl implements GuestCartRepository {
+
+    public static final String KEY_PREFIX = "cart:guest:";
+    public static final String QUANTITY_FIELD_PREFIX = "qty:";
+    public static final String PRICE_FIELD_PREFIX = "price:";
+    // Keeps the hash alive even when every item has been removed
+    public static final String UPDATED_AT_FIELD = "meta:updatedAt";
+    public static final String MERGED_KEY_PREFIX = "cart:guest:merged:";
+    // Where a guest cart's hash is kept while a merge works on it
+    public static final String CLAIMED_KEY_PREFIX = "cart:guest:claimed:";
+    public static final String CLAIM_OWNER_KEY_PREFIX = "cart:guest:claim-owner:";
+    public static final String USER_MERGE_LOCK_KEY_PREFIX = "cart:user:merge-lock:";
+
+    // ARGV: ttlSeconds, mode (create|update|set), timestamp, then (productId, quantity, price) triples. create and
+    // update add the quantity to the product's; set replaces it, removing the product at 0 or below.
+    // Returns the whole hash after the change, or an empty list when changing a cart that does not exist.
+    public static final RedisScript<List> UPSERT_ITEMS_SCRIPT = new DefaultRedisScript<>("""
+            if ARGV[2] ~= 'create' and redis.call('EXISTS', KEYS[1]) == 0 then
+                return {}
+            end
+            for i = 4, #ARGV, 3 do
+                local quantity
+                if ARGV[2] == 'set' then
+                    quantity = tonumber(ARGV[i + 1])
+                    if quantity > 0 then
+                        redis.call('HSET', KEYS[1], 'qty:' .. ARGV[i], quantity)
+                    end
+                else
+                    quantity = redis.call('HINCRBY', KEYS[1], 'qty:' .. ARGV[i], ARGV[i + 1])
+                end
+                if quantity <= 0 then
+                    redis.call('HDEL', KEYS[1], 'qty:' .. ARGV[i], 'price:' .. ARGV[i])
+                else
+                    redis.call('HSET', KEYS[1], 'price:' .. ARGV[i], ARGV[i + 2])
+                end
+            end
+            redis.call('HSET', KEYS[1], 'meta:updatedAt', ARGV[3])
+            redis.call('EXPIRE', KEYS[1], ARGV[1])
+            return redis.call('HGETALL', KEYS[1])
+            """, List.class);
+
+    // ARGV: ttlSeconds. Reads the hash and slides its expiry in one round trip.
+    public static final RedisScript<List> TOUCH_SCRIPT = new DefaultRedisScript<>("""
+            local cart = redis.call('HGETALL', KEYS[1])
+            if #cart > 0 then
+                redis.call('EXPIRE', KEYS[1], ARGV[1])
+            end
+            return cart
+            """, List.class);
+
+    // KEYS: guest cart, claimed cart, merge marker, claim owner, user merge lock. ARGV: userId, claimTtlMillis, cartId.
+    // Renames the guest hash to the claimed key, so its items survive until the merge commits. A claimed cart whose
+    // owner expired was left by a crashed merge and is claimed again; the merge record in the database tells whether
+    // that merge committed.
+    private static final RedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            local mergedInto = redis.call('GET', KEYS[3])
+            if mergedInto then
+                return {'MERGED', mergedInto}
+            end
+            if redis.call('EXISTS', KEYS[4]) == 1 or redis.call('EXISTS', KEYS[5]) == 1 then
+                return {'IN_PROGRESS'}
+            end
+            if redis.call('EXISTS', KEYS[2]) == 0 then
+                if redis.call('EXISTS', KEYS[1]) == 0 then
+                    return {'MISSING'}
+                end
+                redis.call('RENAME', KEYS[1], KEYS[2])
+            end
+            redis.call('SET', KEYS[4], ARGV[1], 'PX', ARGV[2])
+            redis.call('SET', KEYS[5], ARGV[3], 'PX', ARGV[2])
+            local cart = redis.call('HGETALL', KEYS[2])
+            local reply = {'CLAIMED'}
+            for i = 1, #cart do
+                reply[#reply + 1] = cart[i]
+            end
+            return reply
+            """, List.class);
+
+    // KEYS: claimed cart, merge marker, claim owner, user merge lock. ARGV: userId, markerTtlSeconds, cartId.
+    private static final RedisScript<Long> COMPLETE_CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('SET', KEYS[2], ARGV[1], 'EX', ARGV[2])
+            redis.call('DEL', KEYS[1], KEYS[3])
+            if redis.call('GET', KEYS[4]) == ARGV[3] then
+                redis.call('DEL', KEYS[4])
+            end
+            return 1
+            """, Long.class);
+
+    // KEYS: claimed cart, guest cart, claim owner, user merge lock. ARGV: ttlSeconds, cartId.
+    // Puts the items back where guest reads and writes find them, and frees the cart and user for a retry.
+    private static final RedisScript<Long> RELEASE_CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                redis.call('RENAME', KEYS[1], KEYS[2])
+                redis.call('EXPIRE', KEYS[2], ARGV[1])
+            end
+            redis.call('DEL', KEYS[3])
+            if redis.call('GET', KEYS[4]) == ARGV[2] then
+                redis.call('DEL', KEYS[4])
+            end
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final GuestCartProperties properties;
+
+    public GuestCartRepositoryImpl(StringRedisTemplate stringRedisTemplate, GuestCartProperties properties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public CartDto create(String cartId, List<CartItemDto> cartItems) {
+        return upsertItems(cartId, "create", cartItems)
+                .orElseThrow(() -> new RedisOperationException("Error saving cart to Redis"));
+    }
+
+    @Override
+    public Optional<CartDto> findById(String cartId) {
+        try {
+            List<String> fields = executeForStrings(TOUCH_SCRIPT, List.of(generateKey(cartId)), ttlSeconds());
+            return toCartDto(cartId, fields);
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error reading cart from Redis", e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, CartDto> findAllById(Collection<String> cartIds) {
+        List<String> ids = List.copyOf(cartIds);
+        List<Object> replies;
+        try {
+            // One pipelined round trip; bulk readers don't slide the guest TTL the way interactive reads do
+            replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                ids.forEach(cartId -> stringConnection.hGetAll(generateKey(cartId)));
+                return null;
+            });
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error reading carts from Redis", e);
+        }
+        Map<String, CartDto> found = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Map<String, String> hash = (Map<String, String>) replies.get(i);
+            List<String> fields = new ArrayList<>(hash.size() * 2);
+            hash.forEach((field, value) -> {
+                fields.add(field);
+                fields.add(value);
+            });
+            String cartId = ids.get(i);
+            toCartDto(cartId, fields).ifPresent(cartDto -> found.put(cartId, cartDto));
+        }
+        return found;
+    }
+
+    @Override
+    public Optional<CartDto> addItems(String cartId, List<CartItemDto> cartItems) {
+        return upsertItems(cartId, "update", cartItems);
+    }
+
+    @Override
+    public Optional<CartDto> setItems(String cartId, List<CartItemDto> cartItems) {
+        return upsertItems(cartId, "set", cartItems);
+    }
+
+    @Override
+    public void deleteById(String cartId) {
+        try {
+            stringRedisTemplate.delete(generateKey(cartId));
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error deleting cart from Redis", e);
+        }
+    }
+
+    @Override
+    public GuestCartClaim claimForMerge(String cartId, String userId) {
+        List<String> reply;
+        try {
+            reply = executeForStrings(CLAIM_SCRIPT,
+                    List.of(generateKey(cartId), CLAIMED_KEY_PREFIX + cartId, MERGED_KEY_PREFIX + cartId,
+                            CLAIM_OWNER_KEY_PREFIX + cartId, USER_MERGE_LOCK_KEY_PREFIX + userId),
+                    userId, String.valueOf(properties.getMergeClaimTimeToLive().toMillis()), cartId);
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error claiming cart in Redis", e);
+        }
+        GuestCartClaim.Status status = GuestCartClaim.Status.valueOf(reply.get(0));
+        return switch (status) {
+            case CLAIMED -> new GuestCartClaim(status, toCartDto(cartId, reply.subList(1, reply.size())).orElseThrow(), null);
+            case MERGED -> new GuestCartClaim(status, null, reply.get(1));
+            case IN_PROGRESS, MISSING -> new GuestCartClaim(status, null, null);
+        };
+    }
+
+    @Override
+    public void completeClaim(String cartId, String userId) {
+        try {
+            stringRedisTemplate.execute(COMPLETE_CLAIM_SCRIPT,
+                    List.of(CLAIMED_KEY_PREFIX + cartId, MERGED_KEY_PREFIX + cartId,
+                            CLAIM_OWNER_KEY_PREFIX + cartId, USER_MERGE_LOCK_KEY_PREFIX + userId),
+                    userId, String.valueOf(properties.getMergeMarkerTimeToLive().toSeconds()), cartId);
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error completing cart claim in Redis", e);
+        }
+    }
+
+    @Override
+    public void releaseClaim(String cartId, String userId) {
+        try {
+            stringRedisTemplate.execute(RELEASE_CLAIM_SCRIPT,
+                    List.of(CLAIMED_KEY_PREFIX + cartId, generateKey(cartId),
+                            CLAIM_OWNER_KEY_PREFIX + cartId, USER_MERGE_LOCK_KEY_PREFIX + userId),
+                    ttlSeconds(), cartId);
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error releasing cart claim in Redis", e);
+        }
+    }
+
+    public static String generateKey(String cartId) {
+        return KEY_PREFIX + cartId;
+    }
+
+    /**
+     * Rebuilds a cart from a flat HGETALL reply (field, value, field, value, ...).
+     */
+    public static Optional<CartDto> toCartDto(String cartId, List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return Optional.empty();
+        }
+        Map<String, CartItemDto> itemsByProduct = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < fields.size(); i += 2) {
+            String field = fields.get(i);
+            String value = fields.get(i + 1);
+            if (field.startsWith(QUANTITY_FIELD_PREFIX)) {
+                itemFor(itemsByProduct, field.substring(QUANTITY_FIELD_PREFIX.length())).setQuantity(Integer.parseInt(value));
+            } else if (field.startsWith(PRICE_FIELD_PREFIX)) {
+                itemFor(itemsByProduct, field.substring(PRICE_FIELD_PREFIX.length())).setPrice(Double.parseDouble(value));
+            }
+        }
+        List<CartItemDto> items = new ArrayList<>(itemsByProduct.values());
+        return Optional.of(CartDto.builder()
+                .cartId(cartId)
+                .cartItems(items)
+                .totals(CartTotals.of(items))
+                .build());
+    }
+
+    /**
+     * Builds the ARGV of {@link #UPSERT_ITEMS_SCRIPT}.
+     */
+    public static Object[] upsertItemsArgs(String ttlSeconds, String mode, List<CartItemDto> cartItems) {
+        List<String> args = new ArrayList<>(3 + cartItems.size() * 3);
+        args.add(ttlSeconds);
+        args.add(mode);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        for (CartItemDto item : cartItems) {
+            args.add(item.getProductId());
+            args.add(String.valueOf(item.getQuantity()));
+            args.add(String.valueOf(item.getPrice()));
+        }
+        return args.toArray();
+    }
+
+    private Optional<CartDto> upsertItems(String cartId, String mode, List<CartItemDto> cartItems) {
+        try {
+            List<String> fields = executeForStrings(UPSERT_ITEMS_SCRIPT, List.of(generateKey(cartId)),
+                    upsertItemsArgs(ttlSeconds(), mode, cartItems));
+            return toCartDto(cartId, fields);
+        } catch (DataAccessException e) {
+            throw new RedisOperationException("Error saving cart to Redis", e);
+        }
+    }
+
+    // The scripts reply with flat lists of strings, but a RedisScript can only be declared with the raw List type
+    @SuppressWarnings("unchecked")
+    private List<String> executeForStrings(RedisScript<List> script, List<String> keys, Object... args) {
+        return stringRedisTemplate.execute(script, keys, args);
+    }
+
+    private String ttlSeconds() {
+        return String.valueOf(properties.getTimeToLive().toSeconds());
+    }
+
+    private static CartItemDto itemFor(Map<String, CartItemDto> itemsByProduct, String productId) {
+        return itemsByProduct.computeIfAbsent(productId, id -> CartItemDto.builder().productId(id).build());
+    }
+}
@@ -0,0 +1,12 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import reactor.core.publisher.Mono;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+
+import java.util.List;
+
+public interface ReactiveGuestCartRepository {
+    Mono<CartDto> create(String cartId, List<CartItemDto> cartItems);
+    Mono<CartDto> findById(String cartId);
+}
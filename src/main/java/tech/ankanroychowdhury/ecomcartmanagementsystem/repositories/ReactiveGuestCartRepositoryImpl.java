@@ -0,0 +1,58 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.GuestCartProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.RedisOperationException;
+
+import java.util.List;
+
+import static tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.GuestCartRepositoryImpl.TOUCH_SCRIPT;
+import static tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.GuestCartRepositoryImpl.UPSERT_ITEMS_SCRIPT;
+import static tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.GuestCartRepositoryImpl.generateKey;
+import static tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.GuestCartRepositoryImpl.toCartDto;
+import static tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.GuestCartRepositoryImpl.upsertItemsArgs;
+
+/**
+ * Non-blocking counterpart of {@link GuestCartRepositoryImpl} on Lettuce's reactive API. It runs the same scripts
+ * against the same hash layout, so carts written through either repository are interchangeable.
+ */
+@Repository
+public class ReactiveGuestCartRepositoryImpl implements ReactiveGuestCartRepository {
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final GuestCartProperties properties;
+
+    public ReactiveGuestCartRepositoryImpl(ReactiveStringRedisTemplate reactiveStringRedisTemplate, GuestCartProperties properties) {
+        this.reactiveStringRedisTemplate = reactiveStringRedisTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Mono<CartDto> create(String cartId, List<CartItemDto> cartItems) {
+        return reactiveStringRedisTemplate.execute(UPSERT_ITEMS_SCRIPT, List.of(generateKey(cartId)),
+                        List.of(upsertItemsArgs(ttlSeconds(), "create", cartItems)))
+                .next()
+                .flatMap(fields -> Mono.justOrEmpty(toCartDto(cartId, (List<String>) fields)))
+                .switchIfEmpty(Mono.error(() -> new RedisOperationException("Error saving cart to Redis")))
+                .onErrorMap(DataAccessException.class, e -> new RedisOperationException("Error saving cart to Redis", e));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Mono<CartDto> findById(String cartId) {
+        return reactiveStringRedisTemplate.execute(TOUCH_SCRIPT, List.of(generateKey(cartId)), List.of(ttlSeconds()))
+                .next()
+                .flatMap(fields -> Mono.justOrEmpty(toCartDto(cartId, (List<String>) fields)))
+                .onErrorMap(DataAccessException.class, e -> new RedisOperationException("Error reading cart from Redis", e));
+    }
+
+    private String ttlSeconds() {
+        return String.valueOf(properties.getTimeToLive().toSeconds());
+    }
+}
@@ -0,0 +1,7 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+/**
+ * A cart the reaper has locked for archiving, with the user its ARCHIVED event is published for.
+ */
+public record ReapableCart(String cartId, String userId) {
+}
@@ -0,0 +1,94 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.serializers;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileConstants;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes carts as Smile (binary JSON), gzipped once the encoded cart reaches the compression threshold. The format is
+ * recognised from the leading bytes: the gzip magic or the Smile header.
+ */
+public class CartDtoRedisSerializer implements RedisSerializer<CartDto> {
+
+    private static final byte GZIP_MAGIC_FIRST = (byte) 0x1f;
+    private static final byte GZIP_MAGIC_SECOND = (byte) 0x8b;
+
+    private final ObjectMapper smileMapper;
+    private final int compressionThreshold;
+
+    public CartDtoRedisSerializer(ObjectMapper objectMapper, int compressionThreshold) {
+        this.smileMapper = objectMapper.copyWith(new SmileFactory()).addMixIn(CartDto.class, CachedCartDto.class);
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(CartDto cartDto) throws SerializationException {
+        if (cartDto == null) {
+            return null;
+        }
+        try {
+            byte[] encoded = smileMapper.writeValueAsBytes(cartDto);
+            return encoded.length >= compressionThreshold ? gzip(encoded) : encoded;
+        } catch (IOException e) {
+            throw new SerializationException("Unable to serialize cart " + cartDto.getCartId(), e);
+        }
+    }
+
+    @Override
+    public CartDto deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            if (isGzip(bytes)) {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                    return smileMapper.readValue(in, CartDto.class);
+                }
+            }
+            if (isSmile(bytes)) {
+                return smileMapper.readValue(bytes, CartDto.class);
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Unable to deserialize cart", e);
+        }
+        throw new SerializationException("Unable to deserialize cart, neither gzip nor Smile");
+    }
+
+    // The cached copy keeps the journal offset the API hides, so reads know which pending write-behind adds it has
+    private abstract static class CachedCartDto {
+        @JsonIgnore(false)
+        @JsonProperty
+        String journalOffset;
+    }
+
+    private static byte[] gzip(byte[] encoded) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(encoded);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isGzip(byte[] bytes) {
+        return bytes.length > 1 && bytes[0] == GZIP_MAGIC_FIRST && bytes[1] == GZIP_MAGIC_SECOND;
+    }
+
+    private static boolean isSmile(byte[] bytes) {
+        return bytes.length > 2
+                && bytes[0] == SmileConstants.HEADER_BYTE_1
+                && bytes[1] == SmileConstants.HEADER_BYTE_2
+                && bytes[2] == SmileConstants.HEADER_BYTE_3;
+    }
+}
@@ -0,0 +1,11 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartEventDto;
+
+public interface CartEventPublisher {
+    // Records the event in the outbox as part of the caller's transaction
+    void publish(CartEventDto event);
+
+    // Moves the oldest batch of recorded events to the stream; returns how many were relayed, 0 while backing off
+    int relay();
+}
@@ -0,0 +1,158 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.CartEventProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartEventDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.CartOperationException;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartEventOutboxRepository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartEventRecord;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartEventStreamRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transactional outbox for cart events. {@link #publish} only inserts a row next to the cart change, so the request
+ * commits once and never waits on Redis. {@link #relay} locks the oldest rows, appends them to the stream and deletes
+ * them in one transaction. If the append fails, the rows stay. If the commit fails after the append, the rows are sent
+ * again, so delivery is at least once and consumers deduplicate on {@code eventId}.
+ * <p>
+ * Only the instance holding the relay lease relays, so rows reach the stream in id order and a cart's events keep the
+ * order they were committed in. A leader that stops renewing, because it died or Redis failed it, hands over once the
+ * lease expires.
+ */
+@Slf4j
+@Service
+public class CartEventPublisherImpl implements CartEventPublisher {
+
+    // KEYS: lease. ARGV: token, leaseMillis. Takes a free lease or extends our own.
+    private static final RedisScript<Long> HOLD_LEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+                return 1
+            end
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                redis.call('PEXPIRE', KEYS[1], ARGV[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final CartEventOutboxRepository cartEventOutboxRepository;
+    private final CartEventStreamRepository cartEventStreamRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final CartEventProperties properties;
+
+    private final Counter relayed;
+    private final Counter failures;
+    private final Timer relayTimer;
+    private final String leaseToken = UUID.randomUUID().toString();
+
+    // Only touched by the relay job's thread
+    private int consecutiveFailures;
+    private long retryAt;
+
+    public CartEventPublisherImpl(CartEventOutboxRepository cartEventOutboxRepository,
+                                  CartEventStreamRepository cartEventStreamRepository,
+                                  StringRedisTemplate stringRedisTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  ObjectMapper objectMapper,
+                                  CartEventProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.cartEventOutboxRepository = cartEventOutboxRepository;
+        this.cartEventStreamRepository = cartEventStreamRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.relayed = Counter.builder("cart.events.published").register(meterRegistry);
+        this.failures = Counter.builder("cart.events.relay.failures")
+                .description("Relay batches that failed and were postponed")
+                .register(meterRegistry);
+        this.relayTimer = Timer.builder("cart.events.relay").register(meterRegistry);
+    }
+
+    @Override
+    public void publish(CartEventDto event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            cartEventOutboxRepository.insert(event.getCartId(), event.getType().name(), objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new CartOperationException("Unable to encode cart event for cart " + event.getCartId());
+        }
+    }
+
+    @Override
+    public int relay() {
+        if (System.currentTimeMillis() < retryAt) {
+            return 0;
+        }
+        try {
+            if (!holdLease()) {
+                return 0;
+            }
+            Integer count = relayTimer.record(() -> transactionTemplate.execute(status -> {
+                List<CartEventRecord> batch = cartEventOutboxRepository.lockOldest(properties.getBatchSize());
+                cartEventStreamRepository.append(batch);
+                cartEventOutboxRepository.deleteByIds(batch.stream().map(CartEventRecord::id).toList());
+                return batch.size();
+            }));
+            consecutiveFailures = 0;
+            relayed.increment(count);
+            return count;
+        } catch (RuntimeException e) {
+            failures.increment();
+            consecutiveFailures++;
+            retryAt = System.currentTimeMillis() + backoffMillis();
+            throw e;
+        }
+    }
+
+    // Runs before the Redis connection factory stops, so the next leader doesn't wait out the lease
+    @EventListener(ContextClosedEvent.class)
+    public void releaseLease() {
+        try {
+            stringRedisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(leaseKey()), leaseToken);
+        } catch (DataAccessException e) {
+            log.warn("Unable to release the cart event relay lease, it will expire on its own", e);
+        }
+    }
+
+    private boolean holdLease() {
+        Long held = stringRedisTemplate.execute(HOLD_LEASE_SCRIPT, List.of(leaseKey()),
+                leaseToken, String.valueOf(properties.getRelayLeaseTime().toMillis()));
+        return held != null && held == 1;
+    }
+
+    private String leaseKey() {
+        return properties.getStreamKey() + ":relay-lease";
+    }
+
+    private long backoffMillis() {
+        long backoff = properties.getInitialBackoff().toMillis() << Math.min(consecutiveFailures - 1, 20);
+        return Math.min(backoff, properties.getMaxBackoff().toMillis());
+    }
+}
@@ -0,0 +1,9 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+public interface CartJournalService {
+    // Applies the next batch of write-behind journal entries to the database; returns how many entries it handled
+    int flush();
+
+    // Applies every pending entry of one cart right away, before a synchronous write to it
+    void flushCart(String cartId);
+}
@@ -0,0 +1,263 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.caches.CartCache;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.WriteBehindProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartEventDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.ActiveCart;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartItemDeltaRepository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartJournalEntry;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartJournalRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Moves write-behind journal entries into MySQL. Entries read from the stream only tell which carts have work: what
+ * is applied is each of those carts' pending entries, oldest first, coalesced into one quantity increment per product,
+ * after which the cart's journal offset is moved to the newest entry. The pending entries of a cart are every add not
+ * yet in the database, so the offset never moves past an older entry that another flusher was handed, or that a
+ * failed batch left for a later claim. Entries at or before the offset are skipped, so an entry replayed after a
+ * crash, or flushed both here and by {@link #flushCart}, is applied once. Entries leave the journal only after the
+ * transaction commits. The cart's ITEMS_ADDED event is recorded in the same transaction, so write-behind adds are
+ * announced once they are durable.
+ * <p>
+ * A cart whose entries fail is retried one entry per transaction, to find the entry at fault. That entry stays pending
+ * and holds back the entries after it; once it has failed {@code max-attempts} times for a reason other than a
+ * transient database error, it is moved to the dead-letter stream and the entries after it go through.
+ */
+@Slf4j
+@Service
+public class CartJournalServiceImpl implements CartJournalService {
+
+    private final CartJournalRepository cartJournalRepository;
+    private final CartItemDeltaRepository cartItemDeltaRepository;
+    private final CartCache cartCache;
+    private final CartEventPublisher cartEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteBehindProperties properties;
+    // Consumer name in the Redis group; a new one per process so a restarted instance re-claims its old entries
+    private final String consumer = "flusher-" + UUID.randomUUID();
+
+    private final Counter appliedEntries;
+    private final Counter skippedEntries;
+    private final Counter failedEntries;
+    private final Counter deadLetteredEntries;
+    private final Timer flushTimer;
+
+    // left: entries still pending, oldest first, with the failure that stopped them
+    private record CartFlush(String cartId, int applied, int skipped, List<CartJournalEntry> left,
+                             RuntimeException failure) {
+
+        CartFlush(String cartId, int applied, int skipped) {
+            this(cartId, applied, skipped, List.of(), null);
+        }
+    }
+
+    public CartJournalServiceImpl(CartJournalRepository cartJournalRepository,
+                                  CartItemDeltaRepository cartItemDeltaRepository,
+                                  CartCache cartCache,
+                                  CartEventPublisher cartEventPublisher,
+                                  TransactionTemplate transactionTemplate,
+                                  WriteBehindProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.cartJournalRepository = cartJournalRepository;
+        this.cartItemDeltaRepository = cartItemDeltaRepository;
+        this.cartCache = cartCache;
+        this.cartEventPublisher = cartEventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.appliedEntries = Counter.builder("cart.journal.entries").tag("outcome", "applied").register(meterRegistry);
+        this.skippedEntries = Counter.builder("cart.journal.entries").tag("outcome", "skipped")
+                .description("Entries already in the database, or for carts that no longer exist")
+                .register(meterRegistry);
+        this.failedEntries = Counter.builder("cart.journal.entries").tag("outcome", "failed")
+                .description("Entries of a cart that could not be applied; retried once claimed again")
+                .register(meterRegistry);
+        this.deadLetteredEntries = Counter.builder("cart.journal.entries").tag("outcome", "dead-lettered")
+                .description("Entries moved to the dead-letter stream after failing max-attempts times")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("cart.journal.flush").register(meterRegistry);
+    }
+
+    @Override
+    public int flush() {
+        int batchSize = properties.getBatchSize();
+        List<CartJournalEntry> entries = new ArrayList<>(
+                cartJournalRepository.claimStale(consumer, properties.getClaimAfter(), batchSize));
+        if (entries.size() < batchSize) {
+            entries.addAll(cartJournalRepository.readNew(consumer, batchSize - entries.size()));
+        }
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        // Carts are locked in ID order so two flushers never wait on each other's rows
+        SortedSet<String> cartIds = new TreeSet<>();
+        entries.forEach(entry -> cartIds.add(entry.cartId()));
+        apply(cartIds, entries);
+        return entries.size();
+    }
+
+    @Override
+    public void flushCart(String cartId) {
+        CartFlush cart = apply(new TreeSet<>(Set.of(cartId)), List.of()).get(0);
+        // The caller is about to rewrite the cart, which must not overtake an add that is still pending
+        if (cart.failure() != null) {
+            throw cart.failure();
+        }
+    }
+
+    private List<CartFlush> apply(SortedSet<String> cartIds, List<CartJournalEntry> delivered) {
+        Map<String, List<CartJournalEntry>> pendingByCart = cartJournalRepository.findPending(cartIds);
+        List<CartFlush> flushed;
+        try {
+            flushed = flushTimer.record(() -> transactionTemplate.execute(status -> {
+                List<CartFlush> carts = new ArrayList<>(pendingByCart.size());
+                pendingByCart.forEach((cartId, cartEntries) -> carts.add(applyToCart(cartId, cartEntries)));
+                return carts;
+            }));
+        } catch (RuntimeException e) {
+            // One cart must not hold back the rest of the batch: apply the carts one by one
+            flushed = applyEachCart(pendingByCart);
+        }
+        finish(flushed, pendingByCart, delivered);
+        return flushed;
+    }
+
+    private List<CartFlush> applyEachCart(Map<String, List<CartJournalEntry>> pendingByCart) {
+        List<CartFlush> flushed = new ArrayList<>(pendingByCart.size());
+        pendingByCart.forEach((cartId, cartEntries) -> {
+            try {
+                flushed.add(transactionTemplate.execute(status -> applyToCart(cartId, cartEntries)));
+            } catch (RuntimeException e) {
+                flushed.add(applyEachEntry(cartId, cartEntries));
+            }
+        });
+        return flushed;
+    }
+
+    // In stream order; stops at the first entry that fails and is not dead-lettered, leaving it and the rest pending
+    private CartFlush applyEachEntry(String cartId, List<CartJournalEntry> cartEntries) {
+        int applied = 0;
+        int skipped = 0;
+        for (int i = 0; i < cartEntries.size(); i++) {
+            CartJournalEntry entry = cartEntries.get(i);
+            try {
+                CartFlush one = transactionTemplate.execute(status -> applyToCart(cartId, List.of(entry)));
+                applied += one.applied();
+                skipped += one.skipped();
+            } catch (RuntimeException e) {
+                if (isTransient(e) || cartJournalRepository.recordFailedAttempt(entry) < properties.getMaxAttempts()) {
+                    List<CartJournalEntry> left = cartEntries.subList(i, cartEntries.size());
+                    failedEntries.increment(left.size());
+                    log.warn("Journal entry {} of cart {} could not be applied", entry.id(), cartId, e);
+                    return new CartFlush(cartId, applied, skipped, left, e);
+                }
+                log.error("Journal entry {} of cart {} failed {} times, moving it to the dead-letter stream",
+                        entry.id(), cartId, properties.getMaxAttempts(), e);
+                cartJournalRepository.deadLetter(entry, e.toString());
+                deadLetteredEntries.increment();
+            }
+        }
+        return new CartFlush(cartId, applied, skipped);
+    }
+
+    // Lost connections, lock timeouts and offset races are expected to pass; they never count towards max-attempts
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    // Committed: the cached carts are older than the database now, and the entries not left pending are safe to drop
+    private void finish(List<CartFlush> flushed, Map<String, List<CartJournalEntry>> pendingByCart,
+                        List<CartJournalEntry> delivered) {
+        Map<String, CartJournalEntry> done = new LinkedHashMap<>();
+        Map<String, Set<String>> leftByCart = new HashMap<>();
+        for (CartFlush cart : flushed) {
+            Set<String> left = new HashSet<>();
+            cart.left().forEach(entry -> left.add(entry.id()));
+            leftByCart.put(cart.cartId(), left);
+            pendingByCart.get(cart.cartId()).stream()
+                    .filter(entry -> !left.contains(entry.id()))
+                    .forEach(entry -> done.put(entry.id(), entry));
+            if (cart.applied() > 0) {
+                cartCache.evict(cart.cartId());
+            }
+            appliedEntries.increment(cart.applied());
+            skippedEntries.increment(cart.skipped());
+        }
+        // A delivered entry can already be gone from the pending hash when another flusher applied it
+        delivered.stream()
+                .filter(entry -> leftByCart.containsKey(entry.cartId()) && !leftByCart.get(entry.cartId()).contains(entry.id()))
+                .forEach(entry -> done.putIfAbsent(entry.id(), entry));
+        cartJournalRepository.remove(done.values());
+    }
+
+    private CartFlush applyToCart(String cartId, List<CartJournalEntry> cartEntries) {
+        ActiveCart cart = cartItemDeltaRepository.findActiveCart(cartId);
+        if (cart == null) {
+            return new CartFlush(cartId, 0, cartEntries.size());
+        }
+        List<CartJournalEntry> fresh = cartEntries.stream()
+                .filter(entry -> entry.isAfter(cart.journalOffset()))
+                .toList();
+        if (fresh.isEmpty()) {
+            return new CartFlush(cartId, 0, cartEntries.size());
+        }
+        Map<String, CartItemDto> itemsByProduct = coalesce(fresh);
+        ActiveCart updated = cartItemDeltaRepository.addItems(cartId, itemsByProduct.values());
+        // The offset read above is the compare-and-set guard: if another flush applied entries in the meantime, or the
+        // cart was deleted, this cart's changes roll back and its entries are read again on the next flush
+        if (updated == null
+                || !cartItemDeltaRepository.advanceJournalOffset(cartId, cart.journalOffset(), fresh.get(fresh.size() - 1).id())) {
+            throw new ConcurrencyFailureException("Cart " + cartId + " changed while its journal entries were applied");
+        }
+        cartEventPublisher.publish(CartEventDto.builder()
+                .type(CartEventDto.Type.ITEMS_ADDED)
+                .cartId(cartId)
+                .userId(cart.userId())
+                .items(List.copyOf(itemsByProduct.values()))
+                .totals(updated.totals())
+                .occurredAt(System.currentTimeMillis())
+                .build());
+        return new CartFlush(cartId, fresh.size(), cartEntries.size() - fresh.size());
+    }
+
+    // Entries in stream order; the later price of a product wins
+    private static Map<String, CartItemDto> coalesce(Collection<CartJournalEntry> entries) {
+        Map<String, CartItemDto> itemsByProduct = new TreeMap<>();
+        for (CartJournalEntry entry : entries) {
+            for (CartItemDto item : entry.items()) {
+                itemsByProduct.merge(item.getProductId(), item, (first, second) -> CartItemDto.builder()
+                        .productId(first.getProductId())
+                        .quantity(first.getQuantity() + second.getQuantity())
+                        .price(second.getPrice())
+                        .build());
+            }
+        }
+        return itemsByProduct;
+    }
+}
@@ -0,0 +1,6 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+public interface CartReaperService {
+    // Archives soft-deleted and stale carts in bounded batches; returns how many carts were archived by this run
+    int reap();
+}
@@ -0,0 +1,211 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.caches.CartCache;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.CartReaperProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.GuestCartProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartEventDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartArchiveRepository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.GuestCartMergeRepository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.ReapableCart;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+public class CartReaperServiceImpl implements CartReaperService {
+
+    private static final String LOCK_KEY = "cart:reaper:lock";
+    private static final Duration LOCK_MARGIN = Duration.ofMinutes(1);
+
+    // Only the holder's token may release the lock, so an expired run can't free a newer run's lock
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final CartArchiveRepository cartArchiveRepository;
+    private final GuestCartMergeRepository guestCartMergeRepository;
+    private final CartCache cartCache;
+    private final CartEventPublisher cartEventPublisher;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DataSource dataSource;
+    private final CartReaperProperties properties;
+    private final GuestCartProperties guestCartProperties;
+
+    private final Counter inactiveCarts;
+    private final Counter staleCarts;
+    private final Counter archivedItems;
+    private final Counter backoffs;
+    private final Timer batchTimer;
+
+    public CartReaperServiceImpl(CartArchiveRepository cartArchiveRepository,
+                                 GuestCartMergeRepository guestCartMergeRepository,
+                                 CartCache cartCache,
+                                 CartEventPublisher cartEventPublisher,
+                                 StringRedisTemplate stringRedisTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 DataSource dataSource,
+                                 CartReaperProperties properties,
+                                 GuestCartProperties guestCartProperties,
+                                 MeterRegistry meterRegistry) {
+        this.cartArchiveRepository = cartArchiveRepository;
+        this.guestCartMergeRepository = guestCartMergeRepository;
+        this.cartCache = cartCache;
+        this.cartEventPublisher = cartEventPublisher;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.guestCartProperties = guestCartProperties;
+        this.inactiveCarts = Counter.builder("cart.reaper.carts").tag("state", "inactive").register(meterRegistry);
+        this.staleCarts = Counter.builder("cart.reaper.carts").tag("state", "stale").register(meterRegistry);
+        this.archivedItems = Counter.builder("cart.reaper.items").register(meterRegistry);
+        this.backoffs = Counter.builder("cart.reaper.backoffs")
+                .description("Batches postponed because the connection pool was busy")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("cart.reaper.batch").register(meterRegistry);
+    }
+
+    @Override
+    public int reap() {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(LOCK_KEY, token, properties.getMaxRunDuration().plus(LOCK_MARGIN));
+            if (!Boolean.TRUE.equals(acquired)) {
+                return 0;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Skipping cart reaper run, unable to take the lock", e);
+            return 0;
+        }
+        try {
+            int reaped = reapUntilDone();
+            purgeGuestCartMerges();
+            return reaped;
+        } finally {
+            try {
+                stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(LOCK_KEY), token);
+            } catch (DataAccessException e) {
+                log.warn("Unable to release the cart reaper lock, it will expire on its own", e);
+            }
+        }
+    }
+
+    private int reapUntilDone() {
+        long deadline = System.nanoTime() + properties.getMaxRunDuration().toNanos();
+        long now = System.currentTimeMillis();
+        Date inactiveBefore = new Date(now - properties.getInactiveRetention().toMillis());
+        Date staleBefore = new Date(now - properties.getStaleAfter().toMillis());
+
+        int reaped = 0;
+        for (boolean active : new boolean[]{false, true}) {
+            Date updatedBefore = active ? staleBefore : inactiveBefore;
+            Counter carts = active ? staleCarts : inactiveCarts;
+            while (System.nanoTime() < deadline) {
+                if (poolIsBusy()) {
+                    backoffs.increment();
+                } else {
+                    int batch;
+                    try {
+                        batch = reapBatch(active, updatedBefore, carts);
+                    } catch (DataAccessException e) {
+                        // The batch rolled back as a whole; its carts are picked up again by the next run
+                        log.warn("Cart reaper batch failed, stopping this run", e);
+                        return reaped;
+                    }
+                    reaped += batch;
+                    if (batch < properties.getBatchSize()) {
+                        break;
+                    }
+                }
+                if (!pause()) {
+                    return reaped;
+                }
+            }
+        }
+        return reaped;
+    }
+
+    // A merge record only has to outlive the guest cart it was claimed from and the marker answering retried merges
+    private void purgeGuestCartMerges() {
+        Duration retention = guestCartProperties.getTimeToLive().compareTo(guestCartProperties.getMergeMarkerTimeToLive()) > 0
+                ? guestCartProperties.getTimeToLive() : guestCartProperties.getMergeMarkerTimeToLive();
+        Date mergedBefore = new Date(System.currentTimeMillis() - retention.toMillis());
+        try {
+            while (guestCartMergeRepository.deleteMergedBefore(mergedBefore, properties.getBatchSize()) == properties.getBatchSize()) {
+                if (!pause()) {
+                    return;
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Unable to purge guest cart merge records, retrying next run", e);
+        }
+    }
+
+    private int reapBatch(boolean active, Date updatedBefore, Counter carts) {
+        ReapedBatch batch = batchTimer.record(() -> transactionTemplate.execute(status -> {
+            List<ReapableCart> reapable = cartArchiveRepository.lockReapableCarts(active, updatedBefore, properties.getBatchSize());
+            if (reapable.isEmpty()) {
+                return new ReapedBatch(List.of(), 0);
+            }
+            List<String> cartIds = reapable.stream().map(ReapableCart::cartId).toList();
+            int items = cartArchiveRepository.archiveAndDelete(cartIds, new Date());
+            // In the batch's transaction, so consumers hear of exactly the carts that left the cart table
+            long occurredAt = System.currentTimeMillis();
+            reapable.forEach(cart -> cartEventPublisher.publish(CartEventDto.builder()
+                    .type(CartEventDto.Type.ARCHIVED)
+                    .cartId(cart.cartId())
+                    .userId(cart.userId())
+                    .occurredAt(occurredAt)
+                    .build()));
+            return new ReapedBatch(cartIds, items);
+        }));
+        // Committed by now; drop whatever a cache still holds for the archived carts
+        batch.cartIds().forEach(cartCache::evict);
+        carts.increment(batch.cartIds().size());
+        archivedItems.increment(batch.items());
+        return batch.cartIds().size();
+    }
+
+    private boolean poolIsBusy() {
+        if (!(dataSource instanceof HikariDataSource hikariDataSource) || hikariDataSource.getHikariPoolMXBean() == null) {
+            return false;
+        }
+        HikariPoolMXBean pool = hikariDataSource.getHikariPoolMXBean();
+        int busy = pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+        return busy > hikariDataSource.getMaximumPoolSize() * properties.getMaxPoolUsage();
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.getPauseBetweenBatches().toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record ReapedBatch(List<String> cartIds, int items) {
+    }
+}
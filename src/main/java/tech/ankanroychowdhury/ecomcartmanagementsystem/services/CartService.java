@@ -1,25 +1,48 @@
 package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartExportDto;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemImportDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemPageDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartSummaryDto;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.UpdateCartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.UpdateCartItemDto;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.CartNotFoundException;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.CartOperationException;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.DuplicateRequestException;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.InvalidCartOperationException;
 import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.RedisOperationException;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.CartItemImportReader;
 
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 
 public interface CartService {
     CartDto saveCart(CartDto cartDto) throws CartOperationException;
     CartDto getCartById(String cartId) throws CartNotFoundException;
+    CartDto getCartById(String cartId, boolean includeMetadata) throws CartNotFoundException;
+    CartDto getActiveCartByUserId(String userId) throws CartNotFoundException;
+    // Header and totals only, without loading the items
+    CartSummaryDto getCartSummary(String cartId) throws CartNotFoundException;
+    // Up to limit items with an ID greater than afterItemId (null for the first page)
+    CartItemPageDto getCartItems(String cartId, Long afterItemId, int limit) throws CartNotFoundException, InvalidCartOperationException;
+    // Hands each cart that exists (user or guest) to the consumer as soon as it is resolved; unknown IDs are skipped
+    void streamCartsByIds(List<String> cartIds, Consumer<CartDto> consumer) throws RedisOperationException;
+    // Walks active carts after the given cart ID (keyset) with constant memory; limit is optional
+    void exportActiveCarts(String afterCartId, Date updatedBefore, Integer limit, Consumer<CartExportDto> consumer);
     CartDto addItemsToCart(String cartId, List<CartItemDto> cartItemsDto) throws CartNotFoundException, CartOperationException;
+    // Adds every valid line of the upload in fixed-size batches, each committed on its own; invalid lines are reported
+    CartItemImportDto importItems(String cartId, CartItemImportReader reader) throws CartNotFoundException, CartOperationException;
     void deleteCart(String cartId) throws CartNotFoundException;
     CartDto updateCart(String cartId, UpdateCartDto updateCartDto) throws CartNotFoundException, DuplicateRequestException, CartOperationException;
+    CartDto mergeGuestCart(String guestCartId, String userId) throws CartNotFoundException, InvalidCartOperationException, RedisOperationException;
 
     // Redis-specific operations
     CartDto saveCartInRedis(CartDto cartDto) throws RedisOperationException;
-    CartDto getCartFromRedis(String cartId) throws CartNotFoundException, RedisOperationException, JsonProcessingException;
+    CartDto getCartFromRedis(String cartId) throws CartNotFoundException, RedisOperationException;
+    CartDto addItemsToGuestCart(String cartId, List<CartItemDto> cartItemsDto) throws CartNotFoundException, RedisOperationException;
+    CartDto updateGuestCartItems(String cartId, List<UpdateCartItemDto> cartItemsDto) throws CartNotFoundException, InvalidCartOperationException, RedisOperationException;
 }
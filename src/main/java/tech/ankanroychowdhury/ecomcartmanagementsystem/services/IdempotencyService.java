@@ -0,0 +1,37 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.springframework.http.ResponseEntity;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.ResponseDto;
+
+import java.io.InputStream;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+    String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /**
+     * Runs {@code action} once per idempotency key and scope, replaying the stored response for any retry.
+     * Without a key the action simply runs.
+     * <p>
+     * {@code request} is fingerprinted and kept with the key; reusing the key with a different request gets
+     * {@code 422 Unprocessable Entity}. Pass {@code null} when the scope already identifies the request.
+     */
+    <T> ResponseEntity<ResponseDto<T>> execute(String idempotencyKey,
+                                               String scope,
+                                               Object request,
+                                               TypeReference<ResponseDto<T>> responseType,
+                                               Supplier<ResponseEntity<ResponseDto<T>>> action);
+
+    /**
+     * Same for a request whose body is streamed to {@code action} instead of bound. The body is fingerprinted, with its
+     * content type, as the action reads it and then read to its end. A retry's body is only read through, to compare.
+     */
+    <T> ResponseEntity<ResponseDto<T>> executeStreamed(String idempotencyKey,
+                                                       String scope,
+                                                       String contentType,
+                                                       InputStream body,
+                                                       TypeReference<ResponseDto<T>> responseType,
+                                                       Function<InputStream, ResponseEntity<ResponseDto<T>>> action);
+}
@@ -0,0 +1,285 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.IdempotencyProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.ResponseDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.ResponseBuilder;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final String KEY_PREFIX = "idempotency:";
+    // Followed by ":<request hash>" while the first request runs
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+
+    // ARGV: in-progress marker, ttlSeconds. Returns the stored value, or nil after claiming the key for this caller.
+    private static final RedisScript<String> CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            local stored = redis.call('GET', KEYS[1])
+            if stored then
+                return stored
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2])
+            return false
+            """, String.class);
+
+    // ARGV: in-progress marker, ttlSeconds. Extends the claim only while it is still this caller's marker.
+    private static final RedisScript<Long> REFRESH_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('EXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyProperties properties;
+    // Own thread, so refreshes never queue behind long-running scheduled jobs
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "idempotency-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public IdempotencyServiceImpl(StringRedisTemplate stringRedisTemplate,
+                                  ObjectMapper objectMapper,
+                                  IdempotencyProperties properties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    @Override
+    public <T> ResponseEntity<ResponseDto<T>> execute(String idempotencyKey,
+                                                      String scope,
+                                                      Object request,
+                                                      TypeReference<ResponseDto<T>> responseType,
+                                                      Supplier<ResponseEntity<ResponseDto<T>>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        String key = KEY_PREFIX + scope + ":" + idempotencyKey;
+        String requestHash = hash(request);
+        String marker = IN_PROGRESS + ":" + requestHash;
+
+        String stored;
+        try {
+            stored = stringRedisTemplate.execute(CLAIM_SCRIPT, List.of(key), marker, inProgressSeconds());
+        } catch (Exception e) {
+            // Fail open: losing duplicate suppression is preferable to rejecting the mutation outright
+            log.warn("Idempotency store unavailable, executing request without replay protection", e);
+            return action.get();
+        }
+
+        if (stored != null && stored.startsWith(IN_PROGRESS)) {
+            if (!stored.equals(IN_PROGRESS) && !stored.equals(marker)) {
+                return keyReused();
+            }
+            return ResponseBuilder.error(HttpStatus.CONFLICT, "Request already in progress",
+                    List.of("A request with this Idempotency-Key is still being processed"));
+        }
+        if (stored != null) {
+            return replay(stored, requestHash, responseType);
+        }
+
+        return runClaimed(key, marker, action, () -> requestHash);
+    }
+
+    @Override
+    public <T> ResponseEntity<ResponseDto<T>> executeStreamed(String idempotencyKey,
+                                                              String scope,
+                                                              String contentType,
+                                                              InputStream body,
+                                                              TypeReference<ResponseDto<T>> responseType,
+                                                              Function<InputStream, ResponseEntity<ResponseDto<T>>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.apply(body);
+        }
+        String key = KEY_PREFIX + scope + ":" + idempotencyKey;
+        MessageDigest digest = sha256();
+        digest.update(String.valueOf(contentType).getBytes(StandardCharsets.UTF_8));
+        DigestInputStream digestedBody = new DigestInputStream(body, digest);
+
+        // The fingerprint is only known once the body is read, so the claim carries none
+        String stored;
+        try {
+            stored = stringRedisTemplate.execute(CLAIM_SCRIPT, List.of(key), IN_PROGRESS, inProgressSeconds());
+        } catch (Exception e) {
+            log.warn("Idempotency store unavailable, executing request without replay protection", e);
+            return action.apply(body);
+        }
+
+        if (stored != null && stored.startsWith(IN_PROGRESS)) {
+            return ResponseBuilder.error(HttpStatus.CONFLICT, "Request already in progress",
+                    List.of("A request with this Idempotency-Key is still being processed"));
+        }
+        if (stored != null) {
+            return replay(stored, readToEnd(digestedBody) ? HexFormat.of().formatHex(digest.digest()) : null, responseType);
+        }
+
+        AtomicReference<String> requestHash = new AtomicReference<>();
+        return runClaimed(key, IN_PROGRESS, () -> {
+            // The action may close what it is given, or stop reading early; the fingerprint covers the whole body
+            ResponseEntity<ResponseDto<T>> response = action.apply(new FilterInputStream(digestedBody) {
+                @Override
+                public void close() {
+                }
+            });
+            if (readToEnd(digestedBody)) {
+                requestHash.set(HexFormat.of().formatHex(digest.digest()));
+            }
+            return response;
+        }, requestHash::get);
+    }
+
+    private <T> ResponseEntity<ResponseDto<T>> runClaimed(String key, String marker,
+                                                          Supplier<ResponseEntity<ResponseDto<T>>> action,
+                                                          Supplier<String> requestHash) {
+        ResponseEntity<ResponseDto<T>> response;
+        ScheduledFuture<?> refresh = keepClaimed(key, marker);
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(key);
+            throw e;
+        } finally {
+            refresh.cancel(false);
+        }
+        if (response.getStatusCode().is5xxServerError() || response.getStatusCode().isSameCodeAs(HttpStatus.CONFLICT)) {
+            // Server-side failures and lost write races are not final; let the client retry for real
+            release(key);
+        } else {
+            // A response stored without a hash is replayed for any retry with the key, like one stored before
+            // fingerprinting
+            store(key, requestHash.get(), response);
+        }
+        return response;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+    }
+
+    // The marker TTL only bounds how long a dead instance holds the key; a live one keeps extending it however long
+    // the action runs (imports and merges can take minutes)
+    private ScheduledFuture<?> keepClaimed(String key, String marker) {
+        long periodMillis = Math.max(1, properties.getInProgressTimeToLive().toMillis() / 3);
+        return heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                stringRedisTemplate.execute(REFRESH_SCRIPT, List.of(key), marker, inProgressSeconds());
+            } catch (Exception e) {
+                log.warn("Unable to refresh idempotency key {}", key, e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private String inProgressSeconds() {
+        return String.valueOf(properties.getInProgressTimeToLive().toSeconds());
+    }
+
+    private <T> ResponseEntity<ResponseDto<T>> replay(String stored, String requestHash,
+                                                      TypeReference<ResponseDto<T>> responseType) {
+        StoredResponse storedResponse;
+        try {
+            storedResponse = objectMapper.readValue(stored, StoredResponse.class);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to replay stored idempotent response", e);
+        }
+        // Responses stored before fingerprinting have no hash and are replayed as they are; so is any response when the
+        // retry's streamed body could not be read through
+        if (storedResponse.requestHash() != null && requestHash != null && !storedResponse.requestHash().equals(requestHash)) {
+            return keyReused();
+        }
+        try {
+            ResponseDto<T> body = objectMapper.readValue(storedResponse.body(), responseType);
+            return ResponseEntity.status(storedResponse.status())
+                    .header("Idempotent-Replayed", "true")
+                    .body(body);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to replay stored idempotent response", e);
+        }
+    }
+
+    private <T> void store(String key, String requestHash, ResponseEntity<ResponseDto<T>> response) {
+        try {
+            StoredResponse storedResponse = new StoredResponse(response.getStatusCode().value(),
+                    objectMapper.writeValueAsString(response.getBody()), requestHash);
+            stringRedisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(storedResponse), properties.getTimeToLive());
+        } catch (Exception e) {
+            log.warn("Unable to store idempotent response for {}", key, e);
+            release(key);
+        }
+    }
+
+    private void release(String key) {
+        try {
+            stringRedisTemplate.delete(key);
+        } catch (Exception e) {
+            log.warn("Unable to release idempotency key {}", key, e);
+        }
+    }
+
+    private static <T> ResponseEntity<ResponseDto<T>> keyReused() {
+        return ResponseBuilder.error(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key reused",
+                List.of("This Idempotency-Key was already used with a different request"));
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] body = request == null ? new byte[0] : objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(sha256().digest(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to fingerprint idempotent request", e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Unable to fingerprint idempotent request", e);
+        }
+    }
+
+    private static boolean readToEnd(InputStream body) {
+        try {
+            body.transferTo(OutputStream.nullOutputStream());
+            return true;
+        } catch (IOException e) {
+            log.warn("Unable to read a streamed request to its end, it is not fingerprinted", e);
+            return false;
+        }
+    }
+
+    private record StoredResponse(int status, String body, String requestHash) {
+    }
+}
@@ -0,0 +1,117 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.exceptions.InvalidCartOperationException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Reads an item upload one line at a time, so an import holds only the current line however large the upload is.
+ * A line that can't be read as an item comes back with an error instead of failing the whole upload.
+ */
+public abstract class CartItemImportReader implements Closeable {
+
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+    public record Line(long number, CartItemDto item, String error) {
+    }
+
+    // The next non-blank line, or null at the end of the upload
+    public abstract Line next() throws IOException;
+
+    // One JSON item per line: {"productId": "...", "quantity": 2, "price": 9.99}
+    public static CartItemImportReader ndjson(InputStream inputStream, ObjectMapper objectMapper) {
+        return new NdjsonReader(inputStream, objectMapper.readerFor(CartItemDto.class));
+    }
+
+    // A header row with product_id, quantity and price, as in the cart export; other columns are ignored
+    public static CartItemImportReader csv(InputStream inputStream) throws IOException {
+        return new CsvReader(CSV_MAPPER.readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+    }
+
+    private static final class NdjsonReader extends CartItemImportReader {
+        private final BufferedReader reader;
+        private final ObjectReader itemReader;
+        private long lineNumber;
+
+        private NdjsonReader(InputStream inputStream, ObjectReader itemReader) {
+            this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            this.itemReader = itemReader;
+        }
+
+        @Override
+        public Line next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    CartItemDto item = itemReader.readValue(line);
+                    return item == null
+                            ? new Line(lineNumber, null, "Expected an item object")
+                            : new Line(lineNumber, item, null);
+                } catch (JsonProcessingException e) {
+                    return new Line(lineNumber, null, "Malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class CsvReader extends CartItemImportReader {
+        private final MappingIterator<Map<String, String>> rows;
+        // The header is line 1; quoted line breaks inside a field are not counted
+        private long lineNumber = 1;
+
+        private CsvReader(MappingIterator<Map<String, String>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Line next() throws IOException {
+            if (!rows.hasNextValue()) {
+                return null;
+            }
+            Map<String, String> row = rows.nextValue();
+            lineNumber++;
+            if (lineNumber == 2 && !(row.containsKey("product_id") && row.containsKey("quantity") && row.containsKey("price"))) {
+                throw new InvalidCartOperationException("CSV header must have product_id, quantity and price columns");
+            }
+            CartItemDto item = CartItemDto.builder().productId(row.get("product_id")).build();
+            try {
+                // A short row has no value at all, which fails here like any other non-number
+                item.setQuantity(Integer.parseInt(String.valueOf(row.get("quantity")).trim()));
+                item.setPrice(Double.parseDouble(String.valueOf(row.get("price")).trim()));
+            } catch (NumberFormatException e) {
+                return new Line(lineNumber, null, "quantity and price must be numbers");
+            }
+            return new Line(lineNumber, item, null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            rows.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.utils;
+
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartTotalsDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.Cart;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.CartItem;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Cart totals in whole cents. Item prices are doubles, so each price is rounded to cents (half-up) once and all sums
+ * are exact from there; V8__cart_totals.sql backfills with the same rounding.
+ */
+public class CartTotals {
+
+    private CartTotals() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static long toMinorUnits(double price) {
+        return BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static long lineTotal(int quantity, double price) {
+        return Math.multiplyExact(quantity, toMinorUnits(price));
+    }
+
+    /**
+     * Recomputes the totals of a cart whose items are loaded anyway, before it is saved.
+     */
+    public static void recalculate(Cart cart) {
+        int itemCount = 0;
+        long subtotal = 0;
+        for (CartItem item : cart.getCartItems()) {
+            itemCount += item.getQuantity();
+            subtotal += lineTotal(item.getQuantity(), item.getPrice());
+        }
+        cart.setItemCount(itemCount);
+        cart.setSubtotalMinor(subtotal);
+    }
+
+    // For carts that have no stored totals, i.e. guest carts in Redis
+    public static CartTotalsDto of(List<CartItemDto> items) {
+        int itemCount = 0;
+        long subtotal = 0;
+        for (CartItemDto item : items) {
+            itemCount += item.getQuantity();
+            subtotal += lineTotal(item.getQuantity(), item.getPrice());
+        }
+        return new CartTotalsDto(itemCount, subtotal);
+    }
+}
@@ -0,0 +1,137 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds one row of the {@code worker_lease} table for as long as the instance runs, which makes its worker id unique
+ * among live instances. The lease is renewed every third of its length; the id of an instance that died is handed out
+ * again once its lease has run out. Expiry is compared against the database clock, so node clocks don't matter.
+ * <p>
+ * {@link #workerId()} refuses to hand out an id the instance can't be sure it still holds: once renewals have failed
+ * for a whole lease length, or a renewal finds the row taken over. Generation stops until a renewal succeeds again or,
+ * for a lost lease, a free worker id is leased in its place.
+ */
+@Slf4j
+public class WorkerLease implements AutoCloseable {
+
+    private static final String LOCK_EXPIRED = """
+            SELECT worker_id FROM worker_lease
+            WHERE expires_at < CURRENT_TIMESTAMP(3)
+            ORDER BY expires_at
+            LIMIT 1
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String TAKE = """
+            UPDATE worker_lease SET owner = ?, expires_at = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP(3))
+            WHERE worker_id = ?
+            """;
+
+    private static final String RENEW = """
+            UPDATE worker_lease SET expires_at = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP(3))
+            WHERE worker_id = ? AND owner = ?
+            """;
+
+    private static final String RELEASE = """
+            UPDATE worker_lease SET owner = NULL, expires_at = CURRENT_TIMESTAMP(3)
+            WHERE worker_id = ? AND owner = ?
+            """;
+
+    // validUntil is System.nanoTime() taken before the statement that extended the lease, plus its length, so it never
+    // runs past the expiry the database recorded
+    private record Lease(long workerId, long validUntil) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long leaseSeconds;
+    private final String owner = UUID.randomUUID().toString();
+    private volatile Lease lease;
+
+    private final ScheduledExecutorService renewal = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "worker-lease-renewal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public WorkerLease(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Duration leaseTime) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.leaseSeconds = Math.max(3, leaseTime.toSeconds());
+        this.lease = take();
+        if (lease == null) {
+            throw new IllegalStateException("All " + CartItemIdGenerator.MAX_WORKERS + " worker ids are leased by running instances");
+        }
+        long periodSeconds = leaseSeconds / 3;
+        renewal.scheduleAtFixedRate(this::renew, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * The worker id, as long as the lease on it is known to be held.
+     *
+     * @throws IllegalStateException when the lease has expired or was lost
+     */
+    public long workerId() {
+        Lease current = lease;
+        if (System.nanoTime() - current.validUntil() >= 0) {
+            throw new IllegalStateException("Lease on worker id " + current.workerId()
+                    + " is not held; ids can't be generated until it is renewed");
+        }
+        return current.workerId();
+    }
+
+    @Override
+    public void close() {
+        renewal.shutdownNow();
+        long workerId = lease.workerId();
+        try {
+            jdbcTemplate.update(RELEASE, workerId, owner);
+        } catch (Exception e) {
+            log.warn("Unable to release worker id {}, it will be reused once its lease expires", workerId, e);
+        }
+    }
+
+    void renew() {
+        Lease current = lease;
+        long started = System.nanoTime();
+        try {
+            if (jdbcTemplate.update(RENEW, leaseSeconds, current.workerId(), owner) == 1) {
+                lease = new Lease(current.workerId(), started + TimeUnit.SECONDS.toNanos(leaseSeconds));
+                return;
+            }
+            // Another instance may already be generating ids with this worker id: stop at once, then look for a free one
+            lease = new Lease(current.workerId(), started);
+            log.error("Lease on worker id {} was lost, cart item ids can't be generated until a new one is leased",
+                    current.workerId());
+            Lease taken = take();
+            if (taken != null) {
+                lease = taken;
+                log.info("Leased worker id {} in place of {}", taken.workerId(), current.workerId());
+            }
+        } catch (Exception e) {
+            log.warn("Unable to renew the lease on worker id {}; ids stop once it expires", current.workerId(), e);
+        }
+    }
+
+    private Lease take() {
+        long started = System.nanoTime();
+        Long leased = transactionTemplate.execute(status -> {
+            List<Long> expired = jdbcTemplate.queryForList(LOCK_EXPIRED, Long.class);
+            if (expired.isEmpty()) {
+                return null;
+            }
+            jdbcTemplate.update(TAKE, owner, leaseSeconds, expired.get(0));
+            return expired.get(0);
+        });
+        return leased == null ? null : new Lease(leased, started + TimeUnit.SECONDS.toNanos(leaseSeconds));
+    }
+}
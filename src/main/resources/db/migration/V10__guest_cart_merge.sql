@@ -0,0 +1,11 @@
+-- One row per merged guest cart, written in the merge transaction. A merge whose Redis cleanup never ran (the instance
+-- died right after commit) finds its row here when retried, so the guest items are never added twice
+CREATE TABLE cartdb_dev.guest_cart_merge
+(
+    guest_cart_id VARCHAR(255) NOT NULL,
+    user_id       VARCHAR(255) NOT NULL,
+    merged_at     datetime     NOT NULL,
+    CONSTRAINT pk_guest_cart_merge PRIMARY KEY (guest_cart_id)
+);
+
+CREATE INDEX idx_guest_cart_merge_merged_at ON cartdb_dev.guest_cart_merge (merged_at);
@@ -0,0 +1,20 @@
+-- cart_item ids are assigned by the application (CartItemIdGenerator), which needs a worker id no other running
+-- instance holds. Each row is one of the 256 worker ids; an instance leases a row and keeps extending expires_at.
+-- Application ids start far above any AUTO_INCREMENT id already in use.
+CREATE TABLE cartdb_dev.worker_lease
+(
+    worker_id  SMALLINT    NOT NULL,
+    owner      VARCHAR(64) NULL,
+    expires_at DATETIME(3) NOT NULL,
+    CONSTRAINT pk_worker_lease PRIMARY KEY (worker_id)
+);
+
+INSERT INTO cartdb_dev.worker_lease (worker_id, owner, expires_at)
+SELECT high.n * 16 + low.n, NULL, '1970-01-01 00:00:00'
+FROM (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 UNION ALL SELECT 5
+      UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9 UNION ALL SELECT 10 UNION ALL SELECT 11
+      UNION ALL SELECT 12 UNION ALL SELECT 13 UNION ALL SELECT 14 UNION ALL SELECT 15) high
+         CROSS JOIN
+     (SELECT 0 AS n UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 UNION ALL SELECT 5
+      UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9 UNION ALL SELECT 10 UNION ALL SELECT 11
+      UNION ALL SELECT 12 UNION ALL SELECT 13 UNION ALL SELECT 14 UNION ALL SELECT 15) low;
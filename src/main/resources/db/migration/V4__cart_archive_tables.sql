@@ -0,0 +1,33 @@
+-- Reaped carts are moved here, so the hot tables only keep live data. Metadata is folded into the cart row.
+CREATE TABLE cartdb_dev.cart_archive
+(
+    cart_id          VARCHAR(255) NOT NULL,
+    user_id          VARCHAR(255) NULL,
+    active           BIT(1)       NOT NULL,
+    created_at       datetime     NOT NULL,
+    updated_at       datetime     NOT NULL,
+    archived_at      datetime     NOT NULL,
+    device_type      VARCHAR(255) NULL,
+    browser          VARCHAR(255) NULL,
+    operating_system VARCHAR(255) NULL,
+    ip_address       VARCHAR(255) NULL,
+    additional_info  LONGTEXT NULL,
+    CONSTRAINT pk_cart_archive PRIMARY KEY (cart_id)
+);
+
+CREATE TABLE cartdb_dev.cart_item_archive
+(
+    id         BIGINT       NOT NULL,
+    cart_id    VARCHAR(255) NOT NULL,
+    product_id VARCHAR(255) NOT NULL,
+    quantity   INT          NOT NULL,
+    price DOUBLE NOT NULL,
+    created_at datetime     NOT NULL,
+    updated_at datetime     NOT NULL,
+    CONSTRAINT pk_cart_item_archive PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_cart_item_archive_cart_id ON cartdb_dev.cart_item_archive (cart_id);
+
+-- Lets the reaper find soft-deleted and stale carts with a range scan instead of a full table scan
+CREATE INDEX idx_cart_active_updated_at ON cartdb_dev.cart (active, updated_at);
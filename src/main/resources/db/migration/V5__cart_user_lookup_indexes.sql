@@ -0,0 +1,6 @@
+-- Active cart of a user: equality on (user_id, active), newest first via updated_at. InnoDB secondary indexes carry the
+-- primary key, so resolving the cart_id is answered from the index alone.
+CREATE INDEX idx_cart_user_id_active ON cartdb_dev.cart (user_id, active, updated_at);
+
+-- Item lookups within a cart by product, e.g. merging quantities for the same product
+CREATE INDEX idx_cart_item_cart_id_product_id ON cartdb_dev.cart_item (cart_id, product_id);
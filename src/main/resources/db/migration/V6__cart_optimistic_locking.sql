@@ -0,0 +1,38 @@
+-- Optimistic locking: every write bumps the row version and fails if another writer bumped it first
+ALTER TABLE cartdb_dev.cart ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE cartdb_dev.cart_item ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- Adding items used to append a row per request, so fold repeated products of a cart into their oldest row first.
+-- Created and filled in two statements: CREATE TABLE ... SELECT is rejected under enforce_gtid_consistency before
+-- MySQL 8.0.21.
+CREATE TABLE cartdb_dev.cart_item_duplicates
+(
+    cart_id    VARCHAR(255) NULL,
+    product_id VARCHAR(255) NOT NULL,
+    keep_id    BIGINT       NOT NULL,
+    quantity   INT          NOT NULL,
+    CONSTRAINT pk_cart_item_duplicates PRIMARY KEY (keep_id)
+);
+
+INSERT INTO cartdb_dev.cart_item_duplicates (cart_id, product_id, keep_id, quantity)
+SELECT cart_id, product_id, MIN(id), SUM(quantity)
+FROM cartdb_dev.cart_item
+GROUP BY cart_id, product_id
+HAVING COUNT(*) > 1;
+
+UPDATE cartdb_dev.cart_item
+SET quantity = (SELECT d.quantity FROM cartdb_dev.cart_item_duplicates d WHERE d.keep_id = cart_item.id)
+WHERE id IN (SELECT keep_id FROM cartdb_dev.cart_item_duplicates);
+
+DELETE FROM cartdb_dev.cart_item
+WHERE EXISTS (SELECT 1
+              FROM cartdb_dev.cart_item_duplicates d
+              WHERE d.cart_id = cart_item.cart_id
+                AND d.product_id = cart_item.product_id
+                AND d.keep_id <> cart_item.id);
+
+DROP TABLE cartdb_dev.cart_item_duplicates;
+
+-- One row per product and cart, which the quantity increment relies on when two requests add the same new product
+CREATE UNIQUE INDEX uk_cart_item_cart_id_product_id ON cartdb_dev.cart_item (cart_id, product_id);
+DROP INDEX idx_cart_item_cart_id_product_id ON cartdb_dev.cart_item;
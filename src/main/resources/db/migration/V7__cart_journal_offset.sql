@@ -0,0 +1,2 @@
+-- Write-behind: ID of the last journal entry applied to the cart, so a replayed entry is never applied twice
+ALTER TABLE cartdb_dev.cart ADD COLUMN journal_offset VARCHAR(64) NULL;
@@ -0,0 +1,12 @@
+-- Running totals kept up to date by every item change, so reading a cart doesn't sum its items.
+-- Prices are rounded to cents half-up, the same way the application does it.
+ALTER TABLE cartdb_dev.cart ADD COLUMN item_count INT NOT NULL DEFAULT 0;
+ALTER TABLE cartdb_dev.cart ADD COLUMN subtotal_minor BIGINT NOT NULL DEFAULT 0;
+
+UPDATE cartdb_dev.cart c
+SET item_count     = (SELECT COALESCE(SUM(i.quantity), 0)
+                      FROM cartdb_dev.cart_item i
+                      WHERE i.cart_id = c.cart_id),
+    subtotal_minor = (SELECT COALESCE(SUM(ROUND(CAST(i.price AS DECIMAL(19, 4)) * 100) * i.quantity), 0)
+                      FROM cartdb_dev.cart_item i
+                      WHERE i.cart_id = c.cart_id);
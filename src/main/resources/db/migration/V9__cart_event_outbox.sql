@@ -0,0 +1,10 @@
+-- Cart events are recorded here in the transaction that changes the cart, then relayed to the cart:events stream
+CREATE TABLE cartdb_dev.cart_event_outbox
+(
+    id         BIGINT AUTO_INCREMENT NOT NULL,
+    cart_id    VARCHAR(255) NOT NULL,
+    event_type VARCHAR(32)  NOT NULL,
+    payload    LONGTEXT     NOT NULL,
+    created_at datetime     NOT NULL,
+    CONSTRAINT pk_cart_event_outbox PRIMARY KEY (id)
+);
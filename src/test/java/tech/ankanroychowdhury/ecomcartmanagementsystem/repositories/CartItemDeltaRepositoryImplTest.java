@@ -0,0 +1,119 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.repositories;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.CartItemIdGenerator;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.CartTotals;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Runs against the Flyway migrations on H2 in MySQL mode, the same stand-in the load test uses.
+ */
+class CartItemDeltaRepositoryImplTest {
+
+    private static final String URL = "jdbc:h2:mem:cart-item-delta;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;"
+            + "INIT=CREATE SCHEMA IF NOT EXISTS cartdb_dev\\;SET SCHEMA cartdb_dev";
+
+    private static final CartItemIdGenerator ID_GENERATOR = new CartItemIdGenerator(0);
+
+    private static NamedParameterJdbcTemplate jdbcTemplate;
+
+    private CartItemDeltaRepositoryImpl repository;
+    private String cartId;
+
+    @BeforeAll
+    static void migrate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @BeforeEach
+    void createCart() {
+        repository = new CartItemDeltaRepositoryImpl(jdbcTemplate, ID_GENERATOR);
+        cartId = UUID.randomUUID().toString();
+        jdbcTemplate.update("""
+                INSERT INTO cart (cart_id, user_id, active, created_at, updated_at, version, item_count, subtotal_minor)
+                VALUES (:cartId, 'user-1', TRUE, :now, :now, 0, 2, :subtotal)
+                """, Map.of("cartId", cartId, "now", new Date(), "subtotal", CartTotals.lineTotal(2, 0.285)));
+        jdbcTemplate.update("""
+                INSERT INTO cart_item (id, cart_id, product_id, quantity, price, version, created_at, updated_at)
+                VALUES (:id, :cartId, 'p1', 2, 0.285, 0, :now, :now)
+                """, Map.of("id", ID_GENERATOR.nextId(), "cartId", cartId, "now", new Date()));
+    }
+
+    @Test
+    void incrementsExistingLinesAndInsertsNewOnes() {
+        ActiveCart cart = repository.addItems(cartId, List.of(item("p1", 3, 1.1), item("p2", 1, 2.49)));
+
+        assertThat(lines()).extracting(CartItemDto::getProductId, CartItemDto::getQuantity, CartItemDto::getPrice)
+                .containsExactly(tuple("p1", 5, 1.1), tuple("p2", 1, 2.49));
+        assertThat(cart.totals().getItemCount()).isEqualTo(6);
+        assertThat(cart.totals().getSubtotalMinor()).isEqualTo(CartTotals.lineTotal(5, 1.1) + CartTotals.lineTotal(1, 2.49));
+    }
+
+    @Test
+    void keepsTheStoredTotalsInStepWithTheLines() {
+        repository.addItems(cartId, List.of(item("p1", 1, 0.285)));
+        repository.addItems(cartId, List.of(item("p3", 4, 9.99), item("p1", 2, 0.3)));
+
+        ActiveCart cart = repository.findActiveCart(cartId);
+        assertThat(cart.totals()).usingRecursiveComparison().isEqualTo(CartTotals.of(lines()));
+    }
+
+    @Test
+    void touchesTheCartRow() {
+        jdbcTemplate.update("UPDATE cart SET updated_at = :longAgo WHERE cart_id = :cartId",
+                Map.of("cartId", cartId, "longAgo", new Date(0)));
+        Date before = new Date();
+
+        repository.addItems(cartId, List.of(item("p2", 1, 2.49)));
+
+        Date updatedAt = jdbcTemplate.queryForObject("SELECT updated_at FROM cart WHERE cart_id = :cartId",
+                Map.of("cartId", cartId), Date.class);
+        assertThat(updatedAt).isAfterOrEqualTo(new Date(before.getTime() - 1000));
+    }
+
+    @Test
+    void changesNothingVisibleForAnInactiveCart() {
+        jdbcTemplate.update("UPDATE cart SET active = FALSE WHERE cart_id = :cartId", Map.of("cartId", cartId));
+
+        assertThat(repository.addItems(cartId, List.of(item("p1", 1, 0.285)))).isNull();
+        assertThat(repository.findActiveCart(cartId)).isNull();
+    }
+
+    @Test
+    void advancesTheJournalOffsetOnlyFromTheExpectedOne() {
+        assertThat(repository.advanceJournalOffset(cartId, null, "1-0")).isTrue();
+        assertThat(repository.advanceJournalOffset(cartId, null, "2-0")).isFalse();
+        assertThat(repository.advanceJournalOffset(cartId, "0-5", "2-0")).isFalse();
+        assertThat(repository.advanceJournalOffset(cartId, "1-0", "2-0")).isTrue();
+
+        assertThat(repository.findActiveCart(cartId).journalOffset()).isEqualTo("2-0");
+    }
+
+    private List<CartItemDto> lines() {
+        return jdbcTemplate.query("SELECT product_id, quantity, price FROM cart_item WHERE cart_id = :cartId ORDER BY product_id",
+                Map.of("cartId", cartId), (rs, rowNum) -> CartItemDto.builder()
+                        .productId(rs.getString("product_id"))
+                        .quantity(rs.getInt("quantity"))
+                        .price(rs.getDouble("price"))
+                        .build());
+    }
+
+    private static CartItemDto item(String productId, int quantity, double price) {
+        return CartItemDto.builder().productId(productId).quantity(quantity).price(price).build();
+    }
+}
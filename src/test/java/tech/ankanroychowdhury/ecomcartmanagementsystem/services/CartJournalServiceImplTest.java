@@ -0,0 +1,157 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.caches.CartCache;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.WriteBehindProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartTotalsDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.ActiveCart;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartItemDeltaRepository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartJournalEntry;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartJournalRepository;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartJournalServiceImplTest {
+
+    private static final String POISON_PRODUCT = "p-".repeat(200);
+
+    private final CartJournalRepository cartJournalRepository = mock(CartJournalRepository.class);
+    private final CartItemDeltaRepository cartItemDeltaRepository = mock(CartItemDeltaRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CartJournalServiceImpl cartJournalService;
+
+    @BeforeEach
+    void createService() {
+        WriteBehindProperties properties = new WriteBehindProperties();
+        properties.setMaxAttempts(3);
+        cartJournalService = new CartJournalServiceImpl(cartJournalRepository, cartItemDeltaRepository, mock(CartCache.class),
+                mock(CartEventPublisher.class), new TransactionTemplate(mock(PlatformTransactionManager.class)), properties,
+                meterRegistry);
+        when(cartItemDeltaRepository.findActiveCart(anyString()))
+                .thenAnswer(invocation -> activeCart(invocation.getArgument(0)));
+        when(cartItemDeltaRepository.advanceJournalOffset(anyString(), any(), anyString())).thenReturn(true);
+        // The poison product fails like a value too long for its column would
+        when(cartItemDeltaRepository.addItems(anyString(), anyCollection())).thenAnswer(invocation -> {
+            Collection<CartItemDto> items = invocation.getArgument(1);
+            if (items.stream().anyMatch(item -> item.getProductId().equals(POISON_PRODUCT))) {
+                throw new DataIntegrityViolationException("Data too long for column 'product_id'");
+            }
+            return activeCart(invocation.getArgument(0));
+        });
+    }
+
+    @Test
+    void deadLettersAnEntryThatKeepsFailingAndAppliesTheOnesAfterIt() {
+        CartJournalEntry poison = entry("1-0", "cart-1", POISON_PRODUCT);
+        CartJournalEntry next = entry("2-0", "cart-1", "p2");
+        pending(Map.of("cart-1", List.of(poison, next)));
+        when(cartJournalRepository.recordFailedAttempt(poison)).thenReturn(1L, 2L, 3L);
+
+        assertThatThrownBy(() -> cartJournalService.flushCart("cart-1")).isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> cartJournalService.flushCart("cart-1")).isInstanceOf(DataIntegrityViolationException.class);
+        verify(cartJournalRepository, never()).deadLetter(any(), any());
+
+        cartJournalService.flushCart("cart-1");
+
+        verify(cartJournalRepository).deadLetter(eq(poison), argThat(error -> error.contains("Data too long")));
+        verify(cartItemDeltaRepository).addItems(eq("cart-1"), argThat(items -> productIds(items).equals(List.of("p2"))));
+        verify(cartItemDeltaRepository).advanceJournalOffset("cart-1", null, "2-0");
+        assertThat(removed()).containsExactlyInAnyOrder(poison, next);
+        assertThat(entries("dead-lettered")).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotCountTransientFailuresAsAttempts() {
+        CartJournalEntry entry = entry("1-0", "cart-1", "p1");
+        pending(Map.of("cart-1", List.of(entry)));
+        when(cartItemDeltaRepository.addItems(anyString(), anyCollection()))
+                .thenThrow(new CannotAcquireLockException("Lock wait timeout exceeded"));
+
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> cartJournalService.flushCart("cart-1")).isInstanceOf(CannotAcquireLockException.class);
+        }
+
+        verify(cartJournalRepository, never()).recordFailedAttempt(any());
+        verify(cartJournalRepository, never()).deadLetter(any(), any());
+        assertThat(entries("dead-lettered")).isZero();
+    }
+
+    @Test
+    void keepsAFailingCartPendingWithoutHoldingBackTheOthers() {
+        CartJournalEntry poison = entry("1-0", "cart-1", POISON_PRODUCT);
+        CartJournalEntry after = entry("3-0", "cart-1", "p3");
+        CartJournalEntry other = entry("2-0", "cart-2", "p2");
+        when(cartJournalRepository.claimStale(anyString(), any(), anyInt())).thenReturn(List.of());
+        when(cartJournalRepository.readNew(anyString(), anyInt())).thenReturn(List.of(poison, other, after));
+        Map<String, List<CartJournalEntry>> pending = new LinkedHashMap<>();
+        pending.put("cart-1", List.of(poison, after));
+        pending.put("cart-2", List.of(other));
+        pending(pending);
+        when(cartJournalRepository.recordFailedAttempt(poison)).thenReturn(1L);
+
+        assertThat(cartJournalService.flush()).isEqualTo(3);
+
+        assertThat(removed()).containsExactly(other);
+        verify(cartJournalRepository, never()).deadLetter(any(), any());
+        assertThat(entries("failed")).isEqualTo(2);
+        assertThat(entries("applied")).isEqualTo(1);
+    }
+
+    private void pending(Map<String, List<CartJournalEntry>> pendingByCart) {
+        when(cartJournalRepository.findPending(anyCollection())).thenAnswer(invocation -> {
+            Map<String, List<CartJournalEntry>> pending = new LinkedHashMap<>();
+            Collection<String> cartIds = invocation.getArgument(0);
+            cartIds.forEach(cartId -> pending.put(cartId, pendingByCart.getOrDefault(cartId, List.of())));
+            return pending;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CartJournalEntry> removed() {
+        ArgumentCaptor<Collection<CartJournalEntry>> removed = ArgumentCaptor.forClass(Collection.class);
+        verify(cartJournalRepository, atLeastOnce()).remove(removed.capture());
+        return List.copyOf(removed.getValue());
+    }
+
+    private double entries(String outcome) {
+        return meterRegistry.get("cart.journal.entries").tag("outcome", outcome).counter().count();
+    }
+
+    private static List<String> productIds(Collection<CartItemDto> items) {
+        return items.stream().map(CartItemDto::getProductId).toList();
+    }
+
+    private static ActiveCart activeCart(String cartId) {
+        return new ActiveCart(cartId, "user-1", null, new CartTotalsDto(0, 0));
+    }
+
+    private static CartJournalEntry entry(String id, String cartId, String productId) {
+        return new CartJournalEntry(id, cartId,
+                List.of(CartItemDto.builder().productId(productId).quantity(1).price(1.0).build()));
+    }
+}
@@ -0,0 +1,374 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.adapters.CartDtoToCartAdapter;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.adapters.CartItemDtoToCartItemAdapter;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.adapters.CartToCartDtoAdapter;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.caches.CartCache;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.CartItemImportProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.OptimisticLockProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.WriteBehindProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartExportDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartItemImportDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.CartTotalsDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.entities.CartItem;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.projections.ActiveCartRowProjection;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.projections.CartItemRowProjection;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.projections.CartSummaryProjection;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.ActiveCart;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartItemDeltaRepository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartItemRepository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartJournalEntry;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartJournalRepository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.CartRepository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.GuestCartMergeRepository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.repositories.GuestCartRepository;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.CartItemImportReader;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.CartTotals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartServiceImplTest {
+
+    @Nested
+    class UpdateCartItems {
+
+        @Test
+        void insertsProductsTheCartDoesNotHave() {
+            List<CartItem> existing = items(item(1L, "p1", 2, 1.5));
+
+            boolean updated = CartServiceImpl.updateCartItems(existing, List.of(item(null, "p2", 3, 2.0)));
+
+            assertThat(updated).isTrue();
+            assertThat(existing).extracting(CartItem::getProductId).containsExactly("p1", "p2");
+        }
+
+        @Test
+        void updatesQuantityAndPriceInPlace() {
+            CartItem line = item(1L, "p1", 2, 1.5);
+            List<CartItem> existing = items(line);
+
+            boolean updated = CartServiceImpl.updateCartItems(existing, List.of(item(null, "p1", 4, 1.75)));
+
+            assertThat(updated).isTrue();
+            assertThat(existing).containsExactly(line);
+            assertThat(line.getQuantity()).isEqualTo(4);
+            assertThat(line.getPrice()).isEqualTo(1.75);
+        }
+
+        @Test
+        void removesProductsSetToZero() {
+            List<CartItem> existing = items(item(1L, "p1", 2, 1.5), item(2L, "p2", 1, 3.0));
+
+            boolean updated = CartServiceImpl.updateCartItems(existing, List.of(item(null, "p1", 0, 1.5)));
+
+            assertThat(updated).isTrue();
+            assertThat(existing).extracting(CartItem::getProductId).containsExactly("p2");
+        }
+
+        @Test
+        void reportsNoChangeForIdenticalOrMissingItems() {
+            CartItem line = item(1L, "p1", 2, 1.5);
+            List<CartItem> existing = items(line);
+
+            boolean updated = CartServiceImpl.updateCartItems(existing,
+                    List.of(item(null, "p1", 2, 1.5), item(null, "absent", 0, 1.0)));
+
+            assertThat(updated).isFalse();
+            assertThat(existing).containsExactly(line);
+        }
+
+        @Test
+        void keepsTheRowOfAProductRemovedAndAddedAgain() {
+            CartItem line = item(1L, "p1", 2, 1.5);
+            List<CartItem> existing = items(line);
+
+            boolean updated = CartServiceImpl.updateCartItems(existing,
+                    List.of(item(null, "p1", 0, 1.5), item(null, "p1", 5, 1.5)));
+
+            assertThat(updated).isTrue();
+            assertThat(existing).containsExactly(line);
+            assertThat(line.getQuantity()).isEqualTo(5);
+        }
+    }
+
+    @Nested
+    class WithPendingItems {
+
+        @Test
+        void returnsTheCommittedCartWhenEveryEntryIsApplied() {
+            CartDto committed = cart("5-0", item("p1", 2, 1.5));
+
+            CartDto cart = CartServiceImpl.withPendingItems(committed,
+                    List.of(entry("4-0", item("p1", 1, 1.5)), entry("5-0", item("p2", 1, 2.0))));
+
+            assertThat(cart).isSameAs(committed);
+        }
+
+        @Test
+        void appliesOnlyEntriesAfterTheOffset() {
+            CartDto committed = cart("5-0", item("p1", 2, 1.5));
+
+            CartDto cart = CartServiceImpl.withPendingItems(committed,
+                    List.of(entry("5-0", item("p1", 7, 1.5)), entry("5-1", item("p1", 1, 2.25)), entry("6-0", item("p2", 3, 0.285))));
+
+            assertThat(cart.getCartItems())
+                    .extracting(CartItemDto::getProductId, CartItemDto::getQuantity, CartItemDto::getPrice)
+                    .containsExactly(
+                            tuple("p1", 3, 2.25),
+                            tuple("p2", 3, 0.285));
+            assertThat(cart.getTotals().getItemCount()).isEqualTo(6);
+            assertThat(cart.getTotals().getSubtotalMinor()).isEqualTo(CartTotals.of(cart.getCartItems()).getSubtotalMinor());
+            assertThat(cart.getJournalOffset()).isEqualTo("6-0");
+        }
+
+        @Test
+        void appliesEverythingWithoutAnOffset() {
+            CartDto committed = cart(null);
+
+            CartDto cart = CartServiceImpl.withPendingItems(committed, List.of(entry("1-0", item("p1", 2, 1.0))));
+
+            assertThat(cart.getTotals().getItemCount()).isEqualTo(2);
+            assertThat(cart.getJournalOffset()).isEqualTo("1-0");
+        }
+
+        @Test
+        void ordersOffsetsNumerically() {
+            // "10-0" sorts before "9-0" as a string
+            CartDto committed = cart("9-0", item("p1", 1, 1.0));
+
+            CartDto cart = CartServiceImpl.withPendingItems(committed, List.of(entry("10-0", item("p1", 1, 1.0))));
+
+            assertThat(cart.getCartItems().get(0).getQuantity()).isEqualTo(2);
+        }
+
+        @Test
+        void leavesTheCommittedCartUntouched() {
+            CartItemDto line = item("p1", 2, 1.5);
+            CartDto committed = cart("1-0", line);
+
+            CartServiceImpl.withPendingItems(committed, List.of(entry("2-0", item("p1", 1, 1.5))));
+
+            assertThat(line.getQuantity()).isEqualTo(2);
+            assertThat(committed.getTotals().getItemCount()).isEqualTo(2);
+            assertThat(committed.getJournalOffset()).isEqualTo("1-0");
+        }
+    }
+
+    @Nested
+    class BulkReads {
+
+        private final CartRepository cartRepository = mock(CartRepository.class);
+        private final CartToCartDtoAdapter cartToCartDtoAdapter = mock(CartToCartDtoAdapter.class);
+        private final GuestCartRepository guestCartRepository = mock(GuestCartRepository.class);
+        private final CartCache cartCache = mock(CartCache.class);
+        private final CartJournalRepository cartJournalRepository = mock(CartJournalRepository.class);
+        private final CartServiceImpl cartService;
+
+        BulkReads() {
+            WriteBehindProperties writeBehindProperties = new WriteBehindProperties();
+            writeBehindProperties.setEnabled(true);
+            cartService = new CartServiceImpl(cartRepository, mock(CartItemDeltaRepository.class), mock(CartItemRepository.class),
+                    mock(CartDtoToCartAdapter.class), cartToCartDtoAdapter, mock(CartItemDtoToCartItemAdapter.class),
+                    guestCartRepository, mock(GuestCartMergeRepository.class), cartCache,
+                    new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(),
+                    new OptimisticLockProperties(), cartJournalRepository, mock(CartJournalService.class),
+                    writeBehindProperties, mock(CartEventPublisher.class), new CartItemImportProperties(),
+                    Validation.buildDefaultValidatorFactory().getValidator());
+        }
+
+        @Test
+        void overlaysPendingAddsOnCachedAndStoredCarts() {
+            CartDto cached = cart("cart-1", "1-0", item("p1", 1, 1.0));
+            CartDto stored = cart("cart-2", "2-0", item("p1", 2, 1.0));
+            CartItemRowProjection row = new CartItemRowProjection("cart-2", "user-2", "2-0", 2, 200, 1L, "p1", 2, 1.0);
+            when(cartJournalRepository.findPending(Set.of("cart-1", "cart-2"))).thenReturn(Map.of(
+                    "cart-1", List.of(entry("cart-1", "1-0", item("p1", 5, 1.0)), entry("cart-1", "2-0", item("p2", 1, 3.0))),
+                    "cart-2", List.of(entry("cart-2", "3-0", item("p1", 1, 1.0)))));
+            when(cartCache.getAll(any())).thenReturn(Map.of("cart-1", cached));
+            when(guestCartRepository.findAllById(any())).thenReturn(Map.of());
+            when(cartRepository.findCartRowsByCartIdIn(any())).thenReturn(List.of(row));
+            when(cartToCartDtoAdapter.convertToCartDto(List.of(row))).thenReturn(stored);
+
+            List<CartDto> carts = new ArrayList<>();
+            cartService.streamCartsByIds(List.of("cart-1", "cart-2"), carts::add);
+
+            assertThat(carts).extracting(CartDto::getCartId).containsExactly("cart-1", "cart-2");
+            assertThat(carts.get(0).getCartItems()).extracting(CartItemDto::getProductId, CartItemDto::getQuantity)
+                    .containsExactly(tuple("p1", 1), tuple("p2", 1));
+            assertThat(carts.get(1).getCartItems()).extracting(CartItemDto::getProductId, CartItemDto::getQuantity)
+                    .containsExactly(tuple("p1", 3));
+            // The cache keeps the committed cart; the overlay is only in what is returned
+            verify(cartCache).populate(stored);
+            assertThat(stored.getCartItems().get(0).getQuantity()).isEqualTo(2);
+        }
+
+        @Test
+        void overlaysPendingAddsOnExportedCarts() {
+            when(cartRepository.streamActiveCartRows(eq(""), any())).thenReturn(Stream.of(
+                    new ActiveCartRowProjection("cart-1", "user-1", new Date(), "1-0", 1L, "p1", 1, 1.0),
+                    new ActiveCartRowProjection("cart-2", "user-2", new Date(), null, null, null, null, null),
+                    new ActiveCartRowProjection("cart-3", "user-3", new Date(), null, 2L, "p3", 1, 1.0)));
+            when(cartJournalRepository.findPending(Set.of("cart-1", "cart-2")))
+                    .thenReturn(Map.of("cart-2", List.of(entry("cart-2", "1-0", item("p2", 4, 2.0)))));
+
+            List<CartExportDto> carts = new ArrayList<>();
+            cartService.exportActiveCarts("", new Date(), 2, carts::add);
+
+            assertThat(carts).extracting(CartExportDto::getCartId).containsExactly("cart-1", "cart-2");
+            assertThat(carts.get(0).getCartItems()).extracting(CartItemDto::getProductId).containsExactly("p1");
+            assertThat(carts.get(1).getCartItems()).extracting(CartItemDto::getProductId, CartItemDto::getQuantity)
+                    .containsExactly(tuple("p2", 4));
+        }
+    }
+
+    @Nested
+    class ImportItems {
+
+        private final CartRepository cartRepository = mock(CartRepository.class);
+        private final CartItemDeltaRepository cartItemDeltaRepository = mock(CartItemDeltaRepository.class);
+        private final CartServiceImpl cartService;
+
+        ImportItems() {
+            CartItemImportProperties importProperties = new CartItemImportProperties();
+            importProperties.setBatchSize(2);
+            cartService = new CartServiceImpl(cartRepository, cartItemDeltaRepository, mock(CartItemRepository.class),
+                    mock(CartDtoToCartAdapter.class), mock(CartToCartDtoAdapter.class), mock(CartItemDtoToCartItemAdapter.class),
+                    mock(GuestCartRepository.class), mock(GuestCartMergeRepository.class), mock(CartCache.class),
+                    new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(),
+                    new OptimisticLockProperties(), mock(CartJournalRepository.class), mock(CartJournalService.class),
+                    new WriteBehindProperties(), mock(CartEventPublisher.class), importProperties,
+                    Validation.buildDefaultValidatorFactory().getValidator());
+            when(cartRepository.findCartSummaryByCartId("cart-1"))
+                    .thenReturn(new CartSummaryProjection("cart-1", "user-1", 0, 0, null));
+            when(cartItemDeltaRepository.findActiveCart("cart-1")).thenReturn(activeCart(0));
+        }
+
+        @Test
+        void importsEveryBatch() {
+            when(cartItemDeltaRepository.addItems(eq("cart-1"), any())).thenReturn(activeCart(2), activeCart(3));
+
+            CartItemImportDto result = cartService.importItems("cart-1", upload("p1", "p2", "p3"));
+
+            assertThat(result.isComplete()).isTrue();
+            assertThat(result.getImportedLines()).isEqualTo(3);
+            assertThat(result.getLastCommittedLine()).isEqualTo(3);
+            assertThat(result.getRejectedLines()).isZero();
+            assertThat(result.getErrors()).isEmpty();
+            assertThat(result.getTotals().getItemCount()).isEqualTo(3);
+        }
+
+        @Test
+        void reportsInvalidLinesAndImportsTheRest() {
+            when(cartItemDeltaRepository.addItems(eq("cart-1"), any())).thenReturn(activeCart(2));
+
+            CartItemImportDto result = cartService.importItems("cart-1", upload("p1", "", "p2"));
+
+            assertThat(result.getImportedLines()).isEqualTo(2);
+            assertThat(result.getRejectedLines()).isEqualTo(1);
+            assertThat(result.getErrors()).singleElement().satisfies(error -> assertThat(error.getLine()).isEqualTo(2));
+            assertThat(result.getTotals().getItemCount()).isEqualTo(2);
+        }
+
+        @Test
+        void reportsWhereAnImportStoppedAfterABatchCommitted() {
+            when(cartItemDeltaRepository.addItems(eq("cart-1"), any()))
+                    .thenReturn(activeCart(2))
+                    .thenThrow(new DataIntegrityViolationException("Data too long for column 'product_id'"));
+
+            CartItemImportDto result = cartService.importItems("cart-1", upload("p1", "p2", "p3", "p4"));
+
+            assertThat(result.isComplete()).isFalse();
+            assertThat(result.getImportedLines()).isEqualTo(2);
+            assertThat(result.getLastCommittedLine()).isEqualTo(2);
+            assertThat(result.getErrors()).singleElement().satisfies(error -> {
+                assertThat(error.getLine()).isEqualTo(3);
+                assertThat(error.getError()).startsWith("Import stopped");
+            });
+            assertThat(result.getTotals().getItemCount()).isEqualTo(2);
+        }
+
+        @Test
+        void failsAnImportThatCommittedNothing() {
+            when(cartItemDeltaRepository.addItems(eq("cart-1"), any()))
+                    .thenThrow(new DataIntegrityViolationException("Data too long for column 'product_id'"));
+
+            assertThatThrownBy(() -> cartService.importItems("cart-1", upload("p1", "p2", "p3")))
+                    .isInstanceOf(DataIntegrityViolationException.class);
+        }
+
+        private CartItemImportReader upload(String... productIds) {
+            String lines = Arrays.stream(productIds)
+                    .map(productId -> "{\"productId\": \"" + productId + "\", \"quantity\": 1, \"price\": 1.0}\n")
+                    .collect(Collectors.joining());
+            return CartItemImportReader.ndjson(new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8)), new ObjectMapper());
+        }
+
+        private ActiveCart activeCart(int itemCount) {
+            return new ActiveCart("cart-1", "user-1", null, new CartTotalsDto(itemCount, itemCount * 100L));
+        }
+    }
+
+    private static List<CartItem> items(CartItem... items) {
+        return new ArrayList<>(List.of(items));
+    }
+
+    private static CartItem item(Long id, String productId, int quantity, double price) {
+        return CartItem.builder().id(id).productId(productId).quantity(quantity).price(price).build();
+    }
+
+    private static CartItemDto item(String productId, int quantity, double price) {
+        return CartItemDto.builder().productId(productId).quantity(quantity).price(price).build();
+    }
+
+    private static CartDto cart(String journalOffset, CartItemDto... items) {
+        return cart("cart-1", journalOffset, items);
+    }
+
+    private static CartDto cart(String cartId, String journalOffset, CartItemDto... items) {
+        List<CartItemDto> cartItems = new ArrayList<>(List.of(items));
+        CartTotalsDto totals = CartTotals.of(cartItems);
+        return CartDto.builder()
+                .cartId(cartId)
+                .userId("user-1")
+                .cartItems(cartItems)
+                .totals(totals)
+                .journalOffset(journalOffset)
+                .build();
+    }
+
+    private static CartJournalEntry entry(String id, CartItemDto... items) {
+        return entry("cart-1", id, items);
+    }
+
+    private static CartJournalEntry entry(String cartId, String id, CartItemDto... items) {
+        return new CartJournalEntry(id, cartId, List.of(items));
+    }
+}
@@ -0,0 +1,124 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.configurations.IdempotencyProperties;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.dtos.ResponseDto;
+import tech.ankanroychowdhury.ecomcartmanagementsystem.utils.ResponseBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceImplTest {
+
+    private static final TypeReference<ResponseDto<Integer>> RESPONSE_TYPE = new TypeReference<>() {
+    };
+
+    // Stands in for Redis: the claim script and the stored responses
+    private final Map<String, String> store = new HashMap<>();
+    private final AtomicInteger imports = new AtomicInteger();
+    private final IdempotencyServiceImpl idempotencyService;
+
+    @SuppressWarnings("unchecked")
+    IdempotencyServiceImplTest() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+            String key = invocation.<List<String>>getArgument(1).get(0);
+            return store.putIfAbsent(key, invocation.getArgument(2));
+        });
+        doAnswer(invocation -> store.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(valueOperations).set(anyString(), anyString(), any(Duration.class));
+        idempotencyService = new IdempotencyServiceImpl(stringRedisTemplate, new ObjectMapper(), new IdempotencyProperties());
+    }
+
+    @AfterEach
+    void shutdown() {
+        idempotencyService.shutdown();
+    }
+
+    @Test
+    void replaysAStreamedRequestRetriedWithTheSameBody() {
+        importUpload("key-1", "p1\np2\n");
+
+        ResponseEntity<ResponseDto<Integer>> retry = importUpload("key-1", "p1\np2\n");
+
+        assertThat(retry.getHeaders().getFirst("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(retry.getBody().getData()).isEqualTo(2);
+        assertThat(imports).hasValue(1);
+    }
+
+    @Test
+    void rejectsAKeyReusedWithAnotherBodyOfTheSameLength() {
+        importUpload("key-1", "p1\np2\n");
+
+        ResponseEntity<ResponseDto<Integer>> reused = importUpload("key-1", "p3\np4\n");
+
+        assertThat(reused.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(imports).hasValue(1);
+    }
+
+    @Test
+    void fingerprintsTheWholeBodyWhenTheActionStopsEarly() {
+        idempotencyService.executeStreamed("key-1", "import-items:cart-1", "text/csv", upload("p1\np2\n"), RESPONSE_TYPE,
+                body -> respond(readLines(body, 1)));
+
+        ResponseEntity<ResponseDto<Integer>> reused = importUpload("key-1", "p1\np3\n");
+
+        assertThat(reused.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    private ResponseEntity<ResponseDto<Integer>> importUpload(String idempotencyKey, String body) {
+        return idempotencyService.executeStreamed(idempotencyKey, "import-items:cart-1", "text/csv", upload(body),
+                RESPONSE_TYPE, upload -> respond(readLines(upload, Integer.MAX_VALUE)));
+    }
+
+    private ResponseEntity<ResponseDto<Integer>> respond(int lines) {
+        imports.incrementAndGet();
+        return ResponseBuilder.success("Imported", lines);
+    }
+
+    // Reads up to max lines, then closes the stream as the import readers do
+    private static int readLines(InputStream body, int max) {
+        try (body) {
+            int lines = 0;
+            int next;
+            while (lines < max && (next = body.read()) != -1) {
+                if (next == '\n') {
+                    lines++;
+                }
+            }
+            return lines;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStream upload(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,67 @@
+package tech.ankanroychowdhury.ecomcartmanagementsystem.utils;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs against the Flyway migrations on H2 in MySQL mode, the same stand-in the load test uses.
+ */
+class WorkerLeaseTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private WorkerLease lease;
+
+    @BeforeEach
+    void migrate() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:worker-lease-" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;"
+                + "INIT=CREATE SCHEMA IF NOT EXISTS cartdb_dev\\;SET SCHEMA cartdb_dev", "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        lease = new WorkerLease(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void release() {
+        lease.close();
+    }
+
+    @Test
+    void keepsItsWorkerIdWhileRenewalsSucceed() {
+        long workerId = lease.workerId();
+
+        lease.renew();
+
+        assertThat(lease.workerId()).isEqualTo(workerId);
+    }
+
+    @Test
+    void stopsHandingOutTheWorkerIdOnceAnotherInstanceTookItOver() {
+        long workerId = lease.workerId();
+        jdbcTemplate.update("UPDATE worker_lease SET owner = 'other', expires_at = TIMESTAMPADD(MINUTE, 1, CURRENT_TIMESTAMP(3))");
+
+        lease.renew();
+
+        assertThatThrownBy(lease::workerId).isInstanceOf(IllegalStateException.class);
+
+        // Generation resumes on a free worker id, never on the one taken over
+        jdbcTemplate.update("UPDATE worker_lease SET owner = NULL, expires_at = '1970-01-01 00:00:00' WHERE worker_id <> ?",
+                workerId);
+        lease.renew();
+
+        assertThat(lease.workerId()).isNotEqualTo(workerId);
+    }
+}